@@ -1,13 +1,16 @@
 package com.tpl.tupalle.config;
 
 import com.tpl.tupalle.entity.Role;
+import com.tpl.tupalle.entity.TrendingEpoch;
 import com.tpl.tupalle.entity.User;
 import com.tpl.tupalle.repositories.RoleRepository;
+import com.tpl.tupalle.repositories.TrendingEpochRepository;
 import com.tpl.tupalle.repositories.UserRepository;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.Set;
 
 @Component
@@ -16,17 +19,30 @@ public class DataInitializer implements CommandLineRunner {
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TrendingEpochRepository trendingEpochRepository;
 
-    public DataInitializer(RoleRepository roleRepository, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public DataInitializer(RoleRepository roleRepository, UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           TrendingEpochRepository trendingEpochRepository) {
         this.roleRepository = roleRepository;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.trendingEpochRepository = trendingEpochRepository;
     }
 
     @Override
     public void run(String... args) throws Exception {
         initializeRoles();
         initializeTestUsers();
+        initializeTrendingEpoch();
+    }
+
+    private void initializeTrendingEpoch() {
+        if (!trendingEpochRepository.existsById(TrendingEpoch.SINGLETON_ID)) {
+            TrendingEpoch epoch = new TrendingEpoch();
+            epoch.setId(TrendingEpoch.SINGLETON_ID);
+            epoch.setEpochSeconds(Instant.now().getEpochSecond());
+            trendingEpochRepository.save(epoch);
+        }
     }
 
     private void initializeRoles() {
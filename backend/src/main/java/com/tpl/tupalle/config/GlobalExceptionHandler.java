@@ -6,6 +6,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.context.MessageSourceResolvable;
 import org.springframework.validation.FieldError;
 
 import java.util.HashMap;
@@ -32,4 +34,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest()
                 .body(new AuthResponse(null, errorMessage, false));
     }
+
+    // Constraint annotations on @RequestParam arguments, such as the page size bounds
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<String> handleParameterValidationExceptions(HandlerMethodValidationException ex) {
+        String errorMessage = ex.getAllErrors()
+                .stream()
+                .map(MessageSourceResolvable::getDefaultMessage)
+                .collect(Collectors.joining(", "));
+
+        if (errorMessage.isEmpty()) {
+            errorMessage = "Validation failed";
+        }
+
+        return ResponseEntity.badRequest()
+                .body(errorMessage);
+    }
 }
@@ -0,0 +1,27 @@
+package com.tpl.tupalle.config;
+
+import com.tpl.tupalle.services.LikedSetCache;
+import com.tpl.tupalle.services.ShareCache;
+import com.tpl.tupalle.services.ShareSearchIndex;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       ShareCache shareCache,
+                                                                       LikedSetCache likedSetCache,
+                                                                       ShareSearchIndex searchIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(shareCache, new ChannelTopic(ShareCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(likedSetCache, new ChannelTopic(LikedSetCache.CHANGES_CHANNEL));
+        container.addMessageListener(searchIndex, new ChannelTopic(ShareSearchIndex.REINDEX_CHANNEL));
+        return container;
+    }
+}
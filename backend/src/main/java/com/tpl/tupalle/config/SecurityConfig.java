@@ -41,7 +41,7 @@ public class SecurityConfig {
                                         "/auth/verify-email", "/auth/forgot-password", "/auth/reset-password", 
                                         "/auth/resend-verification", "/auth/google/callback").permitAll()
                         .requestMatchers(HttpMethod.GET, "/public/**").permitAll()
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/admin/**", "/actuator/metrics/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(sessionAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
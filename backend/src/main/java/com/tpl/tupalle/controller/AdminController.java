@@ -0,0 +1,37 @@
+package com.tpl.tupalle.controller;
+
+import com.tpl.tupalle.services.ShareRankingService;
+import com.tpl.tupalle.services.ShareSearchIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Maintenance operations; /admin/** is restricted to ROLE_ADMIN in SecurityConfig
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final ShareRankingService rankingService;
+    private final ShareSearchIndex searchIndex;
+
+    public AdminController(ShareRankingService rankingService, ShareSearchIndex searchIndex) {
+        this.rankingService = rankingService;
+        this.searchIndex = searchIndex;
+    }
+
+    @PostMapping("/rankings/most-liked/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildMostLikedRanking() {
+        long ranked = rankingService.rebuild();
+        return ResponseEntity.ok(Map.of("ranked", ranked));
+    }
+
+    @PostMapping("/search-index/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() throws IOException {
+        long indexed = searchIndex.rebuild();
+        return ResponseEntity.ok(Map.of("indexed", indexed));
+    }
+}
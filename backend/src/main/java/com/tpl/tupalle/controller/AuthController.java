@@ -35,6 +35,7 @@ public class AuthController {
             // Create session for newly registered user
             HttpSession session = httpRequest.getSession(true);
             session.setAttribute("username", request.username());
+            session.removeAttribute("userId");
             return ResponseEntity.ok(response);
         } else {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
@@ -48,6 +49,8 @@ public class AuthController {
             // Create session
             HttpSession session = httpRequest.getSession(true);
             session.setAttribute("username", request.usernameOrEmail());
+            // Left over from an earlier Google login in this session
+            session.removeAttribute("userId");
 
             return ResponseEntity.ok(new AuthResponse(request.usernameOrEmail(), "Login successful", true));
         } else {
@@ -93,6 +96,7 @@ public class AuthController {
             // Create session for verified user
             HttpSession session = request.getSession(true);
             session.setAttribute("username", response.username());
+            session.removeAttribute("userId");
 
             // Redirect to frontend with success message
             return ResponseEntity.status(HttpStatus.FOUND)
@@ -0,0 +1,122 @@
+package com.tpl.tupalle.controller;
+
+import com.tpl.tupalle.entity.DTO.ResumableUploadRequest;
+import com.tpl.tupalle.services.ResumableUploadService;
+import com.tpl.tupalle.services.S3Service;
+import com.tpl.tupalle.services.ShareService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Chunked image uploads that survive dropped connections: start, PUT parts (raw bytes, streamed
+ * to S3), check which parts landed, complete. The completed key is attached to a share through
+ * imageUrls like any direct upload.
+ */
+@RestController
+@RequestMapping("/shares/resumable-uploads")
+public class ResumableUploadController {
+
+    private final ResumableUploadService uploads;
+    private final ShareService shareService;
+    private final S3Service s3Service;
+
+    public ResumableUploadController(ResumableUploadService uploads, ShareService shareService,
+                                     S3Service s3Service) {
+        this.uploads = uploads;
+        this.shareService = shareService;
+        this.s3Service = s3Service;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> start(@Valid @RequestBody ResumableUploadRequest req, Authentication auth,
+                                   WebRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(uploads.start(currentUserId(auth, request), req.contentType(), req.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("User not found");
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable String id, Authentication auth, WebRequest request) {
+        try {
+            return ResponseEntity.ok(uploads.status(currentUserId(auth, request), id));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(e.getMessage());
+        }
+    }
+
+    // The body is read from the servlet stream as it arrives; it never goes through a multipart resolver
+    @PutMapping("/{id}/parts/{partNumber}")
+    public ResponseEntity<?> uploadPart(@PathVariable String id, @PathVariable int partNumber,
+                                        HttpServletRequest request, Authentication auth, WebRequest webRequest) {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED)
+                    .body("Content-Length is required");
+        }
+        try {
+            return ResponseEntity.ok(uploads.uploadPart(currentUserId(auth, webRequest), id, partNumber,
+                    request.getInputStream(), length));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                    .body("Failed to read part: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to upload part: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<?> complete(@PathVariable String id, Authentication auth, WebRequest request) {
+        try {
+            String key = uploads.complete(currentUserId(auth, request), id);
+            return ResponseEntity.ok(Map.of("imageUrl", s3Service.signedUrl(key), "key", key));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abort(@PathVariable String id, Authentication auth, WebRequest request) {
+        try {
+            uploads.abort(currentUserId(auth, request), id);
+            return ResponseEntity.noContent().build();
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(e.getMessage());
+        }
+    }
+
+    private Long currentUserId(Authentication auth, WebRequest request) {
+        return SessionUserIds.resolve(auth, request, shareService::resolveUserId);
+    }
+}
@@ -0,0 +1,28 @@
+package com.tpl.tupalle.controller;
+
+import com.tpl.tupalle.entity.DTO.SuggestionResponse;
+import com.tpl.tupalle.services.SuggestionService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private final SuggestionService suggestionService;
+
+    public SearchController(SuggestionService suggestionService) {
+        this.suggestionService = suggestionService;
+    }
+
+    // Answered from memory; meant to be called on every keystroke instead of /shares/search
+    @GetMapping("/suggest")
+    public List<SuggestionResponse> suggest(@RequestParam String prefix,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        return suggestionService.suggest(prefix, limit);
+    }
+}
@@ -0,0 +1,34 @@
+package com.tpl.tupalle.controller;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * Session-cached id of the signed-in user, so likes and liked checks skip the username lookup. The
+ * id is stored with the username it was resolved for and only reused while that is still the
+ * authenticated name, so logging in as someone else in the same session never inherits it.
+ */
+final class SessionUserIds {
+
+    static final String ATTRIBUTE = "resolvedUserId";
+
+    private record Entry(String username, Long userId) implements Serializable {}
+
+    private SessionUserIds() {
+    }
+
+    static Long resolve(Authentication auth, WebRequest request, Function<String, Long> resolver) {
+        String username = auth.getName();
+        if (request.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_SESSION) instanceof Entry entry
+                && entry.username().equals(username)) {
+            return entry.userId();
+        }
+        Long userId = resolver.apply(username);
+        request.setAttribute(ATTRIBUTE, new Entry(username, userId), RequestAttributes.SCOPE_SESSION);
+        return userId;
+    }
+}
@@ -1,30 +1,56 @@
 package com.tpl.tupalle.controller;
 
+import com.tpl.tupalle.entity.CodeSnippet;
+import com.tpl.tupalle.entity.DTO.BatchLikeRequest;
 import com.tpl.tupalle.entity.DTO.CreateShareDTO;
+import com.tpl.tupalle.entity.DTO.CursorPage;
+import com.tpl.tupalle.entity.DTO.FacetedResponse;
+import com.tpl.tupalle.entity.DTO.ImageUrlRefreshRequest;
 import com.tpl.tupalle.entity.DTO.ShareResponse;
+import com.tpl.tupalle.entity.DTO.UploadIntentRequest;
+import com.tpl.tupalle.entity.DTO.UploadIntentResponse;
 import com.tpl.tupalle.entity.Share;
+import com.tpl.tupalle.repositories.ShareRepository;
 import com.tpl.tupalle.services.ShareService;
+import com.tpl.tupalle.services.ShareSnapshot;
 import com.tpl.tupalle.services.S3Service;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/shares")
 public class ShareController {
 
+    // Offset and cursor pages alike; enforced on the size parameter of every listing endpoint
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final String PAGE_SIZE_MESSAGE = "size must be between 1 and " + MAX_PAGE_SIZE;
+
     private final ShareService shareService;
     private final S3Service s3Service;
 
@@ -52,10 +78,13 @@ public class ShareController {
             }
             
             var created = shareService.createShare(auth.getName(), req);
-            return ResponseEntity.ok(ShareService.toDto(created));
+            return ResponseEntity.ok(shareService.toDto(created));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("User not found");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to create share: " + e.getMessage());
@@ -85,30 +114,27 @@ public class ShareController {
                         .body("Description must be less than 2000 characters");
             }
 
-            // Upload image files to S3
-            List<String> uploadedImageUrls = new ArrayList<>();
+            // Upload image files to S3, all at once
+            List<String> uploadedImageKeys = new ArrayList<>();
             if (imageFiles != null && !imageFiles.isEmpty()) {
-                for (MultipartFile file : imageFiles) {
-                    if (!file.isEmpty()) {
-                        try {
-                            String imageUrl = s3Service.uploadImage(file);
-                            uploadedImageUrls.add(imageUrl);
-                        } catch (IOException e) {
-                            return ResponseEntity.badRequest()
-                                    .body("Failed to upload image: " + e.getMessage());
-                        }
-                    }
+                try {
+                    uploadedImageKeys = s3Service.uploadImages(imageFiles.stream()
+                            .filter(file -> !file.isEmpty())
+                            .toList());
+                } catch (IOException e) {
+                    return ResponseEntity.badRequest()
+                            .body("Failed to upload image: " + e.getMessage());
                 }
             }
 
-            // Combine uploaded URLs with provided URLs
+            // Combine uploaded keys with provided URLs
             List<String> allImageUrls = new ArrayList<>();
             if (imageUrls != null) {
                 allImageUrls.addAll(imageUrls.stream()
                         .filter(url -> url != null && !url.trim().isEmpty())
                         .toList());
             }
-            allImageUrls.addAll(uploadedImageUrls);
+            allImageUrls.addAll(uploadedImageKeys);
 
             // Parse code snippets from JSON (simplified - you might want to use a proper JSON parser)
             List<com.tpl.tupalle.entity.CodeSnippet> codeSnippets = new ArrayList<>();
@@ -126,10 +152,13 @@ public class ShareController {
             );
 
             var created = shareService.createShare(auth.getName(), createShareDTO);
-            return ResponseEntity.ok(ShareService.toDto(created));
+            return ResponseEntity.ok(shareService.toDto(created));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("User not found");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to create share: " + e.getMessage());
@@ -145,8 +174,8 @@ public class ShareController {
                         .body("File is empty");
             }
 
-            String imageUrl = s3Service.uploadImage(file);
-            return ResponseEntity.ok().body("{\"imageUrl\": \"" + imageUrl + "\"}");
+            String key = s3Service.uploadImage(file);
+            return ResponseEntity.ok().body(Map.of("imageUrl", s3Service.signedUrl(key), "key", key));
         } catch (IOException e) {
             return ResponseEntity.badRequest()
                     .body("Failed to upload image: " + e.getMessage());
@@ -156,6 +185,28 @@ public class ShareController {
         }
     }
 
+    /**
+     * Presigned PUT URLs so the browser uploads images straight to the bucket. The returned keys
+     * go into {@code imageUrls} when the share is created or updated, where they are confirmed.
+     */
+    @PostMapping("/upload-intents")
+    public ResponseEntity<?> createUploadIntents(@Valid @RequestBody UploadIntentRequest req, Authentication auth,
+                                                 WebRequest request) {
+        try {
+            Long userId = currentUserId(auth, request);
+            List<UploadIntentResponse.Intent> intents = req.files().stream()
+                    .map(file -> s3Service.createUploadIntent(userId, file.contentType(), file.size()))
+                    .toList();
+            return ResponseEntity.ok(new UploadIntentResponse(intents));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("User not found");
+        }
+    }
+
     @PostMapping("/refresh-image-url")
     public ResponseEntity<?> refreshImageUrl(@RequestParam("imageUrl") String imageUrl,
                                            Authentication auth) {
@@ -171,51 +222,214 @@ public class ShareController {
         }
     }
 
+    /**
+     * Fresh URLs for a whole page of images in one call (keys or previously issued URLs in,
+     * original value -> signed URL out). Signatures come from the shared cache.
+     */
+    @PostMapping("/refresh-image-urls")
+    public ResponseEntity<?> refreshImageUrls(@Valid @RequestBody ImageUrlRefreshRequest req) {
+        Map<String, String> refreshed = new LinkedHashMap<>();
+        for (String imageUrl : req.imageUrls()) {
+            if (s3Service.toKey(imageUrl) != null) {
+                refreshed.put(imageUrl, s3Service.signedUrl(imageUrl));
+            }
+        }
+        return ResponseEntity.ok(refreshed);
+    }
+
     @GetMapping("/{id}")
-    public ShareResponse get(@PathVariable UUID id, Authentication auth) {
-        Share share = shareService.getShare(id);
-        boolean isLiked = auth != null ? shareService.hasUserLiked(id, auth.getName()) : false;
-        return ShareService.toDto(share, isLiked);
+    public ResponseEntity<ShareResponse> get(@PathVariable UUID id, Authentication auth, WebRequest request) {
+        // Answer polls from the cached snapshot or the version row alone; collections are only loaded when stale
+        ShareSnapshot cached = shareService.getCachedShareSnapshot(id).orElse(null);
+        Instant updatedAt;
+        long likeCount;
+        String ownerTitle;
+        if (cached != null) {
+            updatedAt = cached.updatedAt();
+            likeCount = cached.likeCount();
+            ownerTitle = shareService.getOwnerTitle(cached.ownerUsername());
+        } else {
+            ShareRepository.ShareVersion version = shareService.getShareVersion(id);
+            updatedAt = version.getUpdatedAt();
+            likeCount = version.getLikeCount();
+            ownerTitle = version.getOwnerTitle() != null ? version.getOwnerTitle() : "Newbie Coder";
+        }
+        boolean isLiked = !likedIds(auth, request, List.of(id)).isEmpty();
+        List<String> imageRefs = cached != null ? cached.imageUrls() : shareService.getImageRefs(id);
+        String etag = ShareETags.strong(id, updatedAt, shareService.likeCountOf(id, likeCount), isLiked,
+                ownerTitle, s3Service.signingEpoch(), shareService.variantState(imageRefs));
+        // ETag only: like count and like state change without touching updatedAt, so If-Modified-Since
+        // would answer 304 for a stale body
+        if (request.checkNotModified(etag)) {
+            return null; // 304, headers already written by checkNotModified
+        }
+
+        ShareSnapshot share = cached != null ? cached : shareService.getShareSnapshot(id);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(shareService.toDto(share, ownerTitle, isLiked));
+    }
+
+    @GetMapping("/{id}/snippets/{index}")
+    public ResponseEntity<?> getSnippet(@PathVariable UUID id, @PathVariable int index) {
+        try {
+            CodeSnippet snippet = shareService.getSnippet(id, index);
+            return ResponseEntity.ok()
+                    .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                    .header("X-Snippet-Language", snippet.getLanguage())
+                    .body(snippet.getContent());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(e.getMessage());
+        }
     }
 
     @GetMapping
-    public Page<ShareResponse> list(@RequestParam(defaultValue = "0") int page,
-                                    @RequestParam(defaultValue = "20") int size,
-                                    @RequestParam(defaultValue = "recent") String sort,
-                                    Authentication auth) {
+    public ResponseEntity<?> list(@RequestParam(defaultValue = "0") int page,
+                                  @RequestParam(defaultValue = "20") @Min(value = 1, message = PAGE_SIZE_MESSAGE)
+                                  @Max(value = MAX_PAGE_SIZE, message = PAGE_SIZE_MESSAGE) int size,
+                                  @RequestParam(defaultValue = "recent") String sort,
+                                  @RequestParam(required = false) String after,
+                                  @RequestParam(defaultValue = "full") String view,
+                                  @RequestParam(defaultValue = "true") boolean withTotal,
+                                  @RequestParam(required = false) String language,
+                                  @RequestParam(required = false) String owner,
+                                  @RequestParam(defaultValue = "false") boolean facets,
+                                  Authentication auth,
+                                  WebRequest request) {
+        // Filtered browsing ("all Python shares by alice") is answered by the search index, newest first
+        if (language != null || owner != null || facets) {
+            if (after != null || !"recent".equals(sort)) {
+                return ResponseEntity.badRequest()
+                        .body("Language and owner filters are only supported with sort=recent and offset paging");
+            }
+            return search(null, page, size, view, withTotal, language, owner, facets, auth);
+        }
+
+        // Cursor mode: any "after" parameter (empty for the first page) switches to keyset paging
+        if (after != null) {
+            try {
+                CursorPage<Share> shares = switch (sort) {
+                    case "most-liked" -> shareService.listMostLikedAfter(after, size);
+                    case "recent" -> shareService.listRecentAfter(after, size);
+                    default -> null;
+                };
+                if (shares == null) {
+                    return ResponseEntity.badRequest()
+                            .body("Cursor paging is only supported for recent and most-liked");
+                }
+                Set<UUID> likedIds = likedIds(auth, request, idsOf(shares.content()));
+                String etag = ShareETags.weak(shares.content(), likedIds, shareService::likeCountOf,
+                        sort + ":" + after + ":" + size + ":" + view + ":" + s3Service.signingEpoch()
+                                + ":" + variantState(shares.content()));
+                if (request.checkNotModified(etag)) {
+                    return null;
+                }
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(shares.withContent(toResponses(shares.content(), likedIds, view)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest()
+                        .body(e.getMessage());
+            }
+        }
+
         Pageable pageable = PageRequest.of(page, size);
-        Page<Share> shares = switch (sort) {
-            case "most-liked" -> shareService.listMostLiked(pageable);
-            case "recent" -> shareService.listRecent(pageable);
-            default -> shareService.list(pageable);
+        Slice<Share> shares = switch (sort) {
+            case "most-liked" -> shareService.listMostLiked(pageable, withTotal);
+            case "trending" -> shareService.listTrending(pageable, withTotal);
+            case "recent" -> shareService.listRecent(pageable, withTotal);
+            default -> shareService.list(pageable, withTotal);
         };
         
-        return shares.map(share -> {
-            boolean isLiked = auth != null ? shareService.hasUserLiked(share.getId(), auth.getName()) : false;
-            return ShareService.toDto(share, isLiked);
-        });
+        // Weak ETag over the page's id/version list; a matching poll skips collection loading and serialization
+        Set<UUID> likedIds = likedIds(auth, request, idsOf(shares.getContent()));
+        String extent = shares instanceof Page<Share> counted ? String.valueOf(counted.getTotalElements())
+                                                              : String.valueOf(shares.hasNext());
+        String etag = ShareETags.weak(shares.getContent(), likedIds, shareService::likeCountOf,
+                sort + ":" + page + ":" + size + ":" + view + ":" + extent + ":" + s3Service.signingEpoch()
+                        + ":" + variantState(shares.getContent()));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        Slice<?> responses = ShareService.withContent(shares, toResponses(shares.getContent(), likedIds, view));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(responses);
     }
 
     @GetMapping("/search")
-    public Page<ShareResponse> search(@RequestParam String q,
-                                      @RequestParam(defaultValue = "0") int page,
-                                      @RequestParam(defaultValue = "20") int size,
-                                      Authentication auth) {
-        Page<Share> shares = shareService.searchByTitle(q, PageRequest.of(page, size));
-        return shares.map(share -> {
-            boolean isLiked = auth != null ? shareService.hasUserLiked(share.getId(), auth.getName()) : false;
-            return ShareService.toDto(share, isLiked);
-        });
+    public ResponseEntity<?> search(@RequestParam(required = false) String q,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") @Min(value = 1, message = PAGE_SIZE_MESSAGE)
+                                    @Max(value = MAX_PAGE_SIZE, message = PAGE_SIZE_MESSAGE) int size,
+                                    @RequestParam(defaultValue = "full") String view,
+                                    @RequestParam(defaultValue = "true") boolean withTotal,
+                                    @RequestParam(required = false) String language,
+                                    @RequestParam(required = false) String owner,
+                                    @RequestParam(defaultValue = "false") boolean facets,
+                                    Authentication auth) {
+        Slice<Share> shares = shareService.search(q, language, owner, PageRequest.of(page, size), withTotal);
+        Slice<?> responses = toResponsePage(shares, auth != null ? auth.getName() : null, view);
+        if (!facets) {
+            return ResponseEntity.ok(responses);
+        }
+        return ResponseEntity.ok(new FacetedResponse<>(responses, shareService.languageFacets(q, owner)));
+    }
+
+    @GetMapping("/search/code")
+    public ResponseEntity<?> searchCode(@RequestParam String q,
+                                        @RequestParam(required = false) String language,
+                                        @RequestParam(defaultValue = "false") boolean regex,
+                                        @RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "20") @Min(value = 1, message = PAGE_SIZE_MESSAGE)
+                                        @Max(value = MAX_PAGE_SIZE, message = PAGE_SIZE_MESSAGE) int size) {
+        try {
+            return ResponseEntity.ok(shareService.searchCode(q, regex, language, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
+        }
     }
 
     @PostMapping("/{id}/like")
-    public void like(@PathVariable UUID id, Authentication auth) {
-        shareService.likeShare(id, auth.getName());
+    public void like(@PathVariable UUID id, Authentication auth, WebRequest request) {
+        shareService.likeShare(id, currentUserId(auth, request));
     }
 
     @DeleteMapping("/{id}/like")
-    public void unlike(@PathVariable UUID id, Authentication auth) {
-        shareService.unlikeShare(id, auth.getName());
+    public void unlike(@PathVariable UUID id, Authentication auth, WebRequest request) {
+        shareService.unlikeShare(id, currentUserId(auth, request));
+    }
+
+    /**
+     * Replays a queue of like/unlike actions in one round trip and one transaction.
+     */
+    @PostMapping("/likes:batch")
+    public ResponseEntity<?> likeBatch(@Valid @RequestBody BatchLikeRequest req, Authentication auth,
+                                       WebRequest request) {
+        try {
+            return ResponseEntity.ok(shareService.applyLikeBatch(currentUserId(auth, request), req.operations()));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("User not found");
+        }
+    }
+
+    private Long currentUserId(Authentication auth, WebRequest request) {
+        return SessionUserIds.resolve(auth, request, shareService::resolveUserId);
+    }
+
+    private String variantState(List<Share> shares) {
+        return shareService.variantState(shares.stream().flatMap(share -> share.getImageUrls().stream()).toList());
+    }
+
+    // Same session-cached id for reads, so a negative liked check needs no query at all
+    private Set<UUID> likedIds(Authentication auth, WebRequest request, Collection<UUID> ids) {
+        if (auth == null) {
+            return Collections.emptySet();
+        }
+        return shareService.findLikedShareIds(currentUserId(auth, request), ids);
     }
 
     @DeleteMapping("/{id}")
@@ -255,16 +469,36 @@ public class ShareController {
             }
             
             var updated = shareService.updateShare(id, auth.getName(), req);
-            return ResponseEntity.ok(ShareService.toDto(updated));
+            return ResponseEntity.ok(shareService.toDto(updated));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Share not found");
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body("You can only update your own shares");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to update share: " + e.getMessage());
         }
     }
+
+    // view=summary returns lightweight cards without snippet bodies, anything else the full response
+    private List<?> toResponses(List<Share> shares, Set<UUID> likedIds, String view) {
+        return "summary".equals(view)
+                ? shareService.toSummaries(shares, likedIds)
+                : shareService.toDtos(shares, likedIds);
+    }
+
+    private static List<UUID> idsOf(List<Share> shares) {
+        return shares.stream().map(Share::getId).toList();
+    }
+
+    private Slice<?> toResponsePage(Slice<Share> shares, String username, String view) {
+        return "summary".equals(view)
+                ? shareService.toSummaryPage(shares, username)
+                : shareService.toDtoPage(shares, username);
+    }
 }
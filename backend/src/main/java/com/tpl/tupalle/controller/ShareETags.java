@@ -0,0 +1,49 @@
+package com.tpl.tupalle.controller;
+
+import com.tpl.tupalle.entity.Share;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ToLongFunction;
+
+/**
+ * ETag helpers for share responses. Tags include the viewer's like state because isLiked is part
+ * of the body, so responses are also marked Cache-Control: private.
+ */
+final class ShareETags {
+
+    private ShareETags() {
+    }
+
+    // Strong tag for a single share: the body is fully determined by these values (image URLs
+    // only change when the signing epoch rolls over or the image variants become ready, and the
+    // owner title changes with likes on the owner's other shares, without touching this one)
+    static String strong(UUID id, Instant updatedAt, long likeCount, boolean liked, String ownerTitle,
+                         long signingEpoch, String variantState) {
+        return "\"" + hash(id + ":" + updatedAt.toEpochMilli() + ":" + likeCount + ":" + liked + ":" + ownerTitle
+                + ":" + signingEpoch + ":" + variantState) + "\"";
+    }
+
+    // Weak tag for a feed page: the id/version list plus anything else that shapes the page (view, paging).
+    // Owners are fetched with every listing, so their titles are included too
+    static String weak(List<Share> shares, Set<UUID> likedIds, ToLongFunction<Share> likeCount,
+                       String discriminator) {
+        StringBuilder versions = new StringBuilder(discriminator);
+        for (Share share : shares) {
+            versions.append('|').append(share.getId())
+                    .append(':').append(share.getUpdatedAt().toEpochMilli())
+                    .append(':').append(likeCount.applyAsLong(share))
+                    .append(':').append(likedIds.contains(share.getId()))
+                    .append(':').append(share.getOwner().getTitle());
+        }
+        return "W/\"" + hash(versions.toString()) + "\"";
+    }
+
+    private static String hash(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
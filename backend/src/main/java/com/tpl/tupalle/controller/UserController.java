@@ -1,12 +1,19 @@
 package com.tpl.tupalle.controller;
 
 import com.tpl.tupalle.entity.DTO.ShareResponse;
+import com.tpl.tupalle.entity.Share;
 import com.tpl.tupalle.services.ShareService;
-import org.springframework.data.domain.Page;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/users")
 public class UserController {
@@ -18,27 +25,37 @@ public class UserController {
     }
 
     @GetMapping("/me/shares")
-    public Page<ShareResponse> getMyShares(Authentication auth,
-                                           @RequestParam(defaultValue = "0") int page,
-                                           @RequestParam(defaultValue = "20") int size) {
-        return shareService.getUserShares(auth.getName(), PageRequest.of(page, size))
-                .map(ShareService::toDto);
+    public Slice<ShareResponse> getMyShares(Authentication auth,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") @Min(value = 1, message = ShareController.PAGE_SIZE_MESSAGE)
+                                            @Max(value = ShareController.MAX_PAGE_SIZE, message = ShareController.PAGE_SIZE_MESSAGE) int size,
+                                            @RequestParam(defaultValue = "true") boolean withTotal) {
+        Slice<Share> shares = shareService.getUserShares(auth.getName(), PageRequest.of(page, size), withTotal);
+        return ShareService.withContent(shares, shareService.toDtos(shares.getContent(), Set.of()));
     }
 
     @GetMapping("/me/liked")
-    public Page<ShareResponse> getMyLikedShares(Authentication auth,
-                                                @RequestParam(defaultValue = "0") int page,
-                                                @RequestParam(defaultValue = "20") int size) {
-        return shareService.getUserLikedShares(auth.getName(), PageRequest.of(page, size))
-                .map(share -> ShareService.toDto(share, true)); // Always true since these are liked shares
+    public Slice<ShareResponse> getMyLikedShares(Authentication auth,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "20") @Min(value = 1, message = ShareController.PAGE_SIZE_MESSAGE)
+                                                 @Max(value = ShareController.MAX_PAGE_SIZE, message = ShareController.PAGE_SIZE_MESSAGE) int size,
+                                                 @RequestParam(defaultValue = "true") boolean withTotal) {
+        Slice<Share> shares = shareService.getUserLikedShares(auth.getName(), PageRequest.of(page, size), withTotal);
+        // Always liked since these are liked shares
+        Set<UUID> likedIds = shares.stream().map(Share::getId).collect(Collectors.toSet());
+        return ShareService.withContent(shares, shareService.toDtos(shares.getContent(), likedIds));
     }
 
     @GetMapping("/{username}/shares")
-    public Page<ShareResponse> getUserShares(@PathVariable String username,
-                                             @RequestParam(defaultValue = "0") int page,
-                                             @RequestParam(defaultValue = "20") int size) {
-        return shareService.getUserShares(username, PageRequest.of(page, size))
-                .map(ShareService::toDto);
+    public Slice<?> getUserShares(@PathVariable String username,
+                                  @RequestParam(defaultValue = "0") int page,
+                                  @RequestParam(defaultValue = "20") @Min(value = 1, message = ShareController.PAGE_SIZE_MESSAGE)
+                                  @Max(value = ShareController.MAX_PAGE_SIZE, message = ShareController.PAGE_SIZE_MESSAGE) int size,
+                                  @RequestParam(defaultValue = "full") String view,
+                                  @RequestParam(defaultValue = "true") boolean withTotal) {
+        Slice<Share> shares = shareService.getUserShares(username, PageRequest.of(page, size), withTotal);
+        return "summary".equals(view)
+                ? shareService.toSummaryPage(shares, null)
+                : ShareService.withContent(shares, shareService.toDtos(shares.getContent(), Set.of()));
     }
 }
-
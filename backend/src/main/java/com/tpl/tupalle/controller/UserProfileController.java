@@ -1,14 +1,16 @@
 package com.tpl.tupalle.controller;
 
-import com.tpl.tupalle.entity.DTO.ShareResponse;
 import com.tpl.tupalle.entity.Share;
 import com.tpl.tupalle.entity.User;
 import com.tpl.tupalle.services.ShareService;
 import com.tpl.tupalle.services.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.domain.Page;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -34,7 +36,7 @@ public class UserProfileController {
             User user = userService.findByUsername(username)
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
             
-            long totalLikes = userService.getTotalLikesForUser(username);
+            long totalLikes = user.getTotalLikes();
             String title = user.getTitle() != null ? user.getTitle() : "Newbie Coder";
             
             Map<String, Object> profile = new HashMap<>();
@@ -53,25 +55,28 @@ public class UserProfileController {
     public ResponseEntity<Map<String, Object>> getUserShares(
             @PathVariable String username,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = ShareController.PAGE_SIZE_MESSAGE)
+            @Max(value = ShareController.MAX_PAGE_SIZE, message = ShareController.PAGE_SIZE_MESSAGE) int size,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(defaultValue = "true") boolean withTotal,
             Authentication authentication) {
         
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Share> shares = shareService.getUserShares(username, pageable);
+            Slice<Share> shares = shareService.getUserShares(username, pageable, withTotal);
             
-            Page<ShareResponse> shareResponses = shares.map(share -> {
-                boolean isLiked = false;
-                if (authentication != null) {
-                    isLiked = shareService.hasUserLiked(share.getId(), authentication.getName());
-                }
-                return ShareService.toDto(share, isLiked);
-            });
+            String viewer = authentication != null ? authentication.getName() : null;
+            Slice<?> shareResponses = "summary".equals(view)
+                    ? shareService.toSummaryPage(shares, viewer)
+                    : shareService.toDtoPage(shares, viewer);
             
             Map<String, Object> response = new HashMap<>();
             response.put("content", shareResponses.getContent());
-            response.put("totalElements", shareResponses.getTotalElements());
-            response.put("totalPages", shareResponses.getTotalPages());
+            if (shareResponses instanceof Page<?> counted) {
+                response.put("totalElements", counted.getTotalElements());
+                response.put("totalPages", counted.getTotalPages());
+            }
+            response.put("hasNext", shareResponses.hasNext());
             response.put("size", shareResponses.getSize());
             response.put("number", shareResponses.getNumber());
             
@@ -0,0 +1,22 @@
+package com.tpl.tupalle.entity.DTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BatchLikeRequest(
+        @NotEmpty(message = "At least one operation is required")
+        @Size(max = 200, message = "At most 200 operations per batch")
+        List<@Valid Operation> operations
+) {
+
+    public record Operation(
+            @NotNull(message = "shareId is required")
+            UUID shareId,
+            boolean liked
+    ) {}
+}
@@ -0,0 +1,21 @@
+package com.tpl.tupalle.entity.DTO;
+
+import java.util.List;
+
+public record BatchLikeResponse(
+        List<Result> results
+) {
+
+    public enum Status {
+        APPLIED,
+        UNCHANGED,
+        NOT_FOUND
+    }
+
+    public record Result(
+            String shareId,
+            boolean liked,
+            Status status,
+            long likeCount
+    ) {}
+}
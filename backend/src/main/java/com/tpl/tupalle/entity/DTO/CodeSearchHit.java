@@ -0,0 +1,10 @@
+package com.tpl.tupalle.entity.DTO;
+
+public record CodeSearchHit(
+        String shareId,
+        int snippetIndex,
+        String language,
+        String filename,
+        int lineNumber,
+        String line
+) {}
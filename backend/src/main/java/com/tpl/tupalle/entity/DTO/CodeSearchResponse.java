@@ -0,0 +1,12 @@
+package com.tpl.tupalle.entity.DTO;
+
+import org.springframework.data.domain.Slice;
+
+/**
+ * A page of code search hits. {@code truncated} is set when more snippets contained the query's
+ * trigrams than a search verifies, so matches beyond this page may exist even without a next page.
+ */
+public record CodeSearchResponse(
+        Slice<CodeSearchHit> results,
+        boolean truncated
+) {}
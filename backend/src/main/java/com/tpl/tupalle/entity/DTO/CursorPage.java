@@ -0,0 +1,19 @@
+package com.tpl.tupalle.entity.DTO;
+
+import java.util.List;
+
+/**
+ * Slice-style result for keyset pagination. {@code next} is an opaque cursor to pass
+ * back as {@code after} to fetch the following page, or null on the last page.
+ */
+public record CursorPage<T>(
+        List<T> content,
+        String next,
+        boolean hasNext,
+        int size
+) {
+
+    public <R> CursorPage<R> withContent(List<R> mapped) {
+        return new CursorPage<>(mapped, next, hasNext, size);
+    }
+}
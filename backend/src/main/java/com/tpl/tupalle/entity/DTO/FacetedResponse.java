@@ -0,0 +1,13 @@
+package com.tpl.tupalle.entity.DTO;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.Map;
+
+/**
+ * A page of results plus share counts per snippet language for the same query.
+ */
+public record FacetedResponse<T>(
+        Slice<T> results,
+        Map<String, Long> languages
+) {}
@@ -0,0 +1,12 @@
+package com.tpl.tupalle.entity.DTO;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ImageUrlRefreshRequest(
+        @NotEmpty(message = "At least one image is required")
+        @Size(max = 200, message = "At most 200 images per request")
+        List<String> imageUrls
+) {}
@@ -0,0 +1,11 @@
+package com.tpl.tupalle.entity.DTO;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+public record ResumableUploadRequest(
+        @NotBlank(message = "contentType is required")
+        String contentType,
+        @Positive(message = "size must be positive")
+        long size
+) {}
@@ -0,0 +1,24 @@
+package com.tpl.tupalle.entity.DTO;
+
+import java.util.List;
+
+/**
+ * State of a resumable upload. Parts are numbered from 1; every part except the last is exactly
+ * {@code partSize} bytes. After a disconnect the client re-sends the parts missing from
+ * {@code uploadedParts} and then completes the upload; {@code key} goes into the share's imageUrls.
+ */
+public record ResumableUploadResponse(
+        String id,
+        String key,
+        long size,
+        long partSize,
+        int partCount,
+        List<Part> uploadedParts,
+        boolean completed
+) {
+
+    public record Part(
+            int partNumber,
+            long size
+    ) {}
+}
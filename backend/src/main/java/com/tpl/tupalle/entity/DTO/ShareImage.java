@@ -0,0 +1,12 @@
+package com.tpl.tupalle.entity.DTO;
+
+/**
+ * One image of a share. Until its variants are generated (or for external URLs) every size
+ * points at the original.
+ */
+public record ShareImage(
+        String url,
+        String thumbnailUrl,
+        String cardUrl,
+        String fullUrl
+) {}
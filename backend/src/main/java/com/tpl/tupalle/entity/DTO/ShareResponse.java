@@ -11,6 +11,7 @@ public record ShareResponse(
         String title,
         String description,
         List<String> imageUrls,
+        List<ShareImage> images,
         List<CodeSnippet> codeSnippets,
         long likeCount,
         boolean isLiked
@@ -0,0 +1,18 @@
+package com.tpl.tupalle.entity.DTO;
+
+import java.util.List;
+
+public record ShareSummaryResponse(
+        String id,
+        String ownerUsername,
+        String ownerTitle,
+        String title,
+        String descriptionExcerpt,
+        String firstImageUrl,
+        List<String> snippetLanguages,
+        int snippetCount,
+        String firstSnippetPreview,
+        boolean firstSnippetTruncated,
+        long likeCount,
+        boolean isLiked
+) {}
@@ -0,0 +1,8 @@
+package com.tpl.tupalle.entity.DTO;
+
+public record SuggestionResponse(
+        String type,
+        String text,
+        String id,
+        long weight
+) {}
@@ -0,0 +1,23 @@
+package com.tpl.tupalle.entity.DTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record UploadIntentRequest(
+        @NotEmpty(message = "At least one file is required")
+        @Size(max = 20, message = "At most 20 files per request")
+        List<@Valid File> files
+) {
+
+    public record File(
+            @NotBlank(message = "contentType is required")
+            String contentType,
+            @Positive(message = "size must be positive")
+            long size
+    ) {}
+}
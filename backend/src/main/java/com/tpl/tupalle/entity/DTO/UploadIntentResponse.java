@@ -0,0 +1,22 @@
+package com.tpl.tupalle.entity.DTO;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record UploadIntentResponse(
+        List<Intent> intents
+) {
+
+    /**
+     * Where and how to PUT one file. {@code headers} must be sent exactly as given: they are part
+     * of the signature, so S3 rejects a different content type or length.
+     */
+    public record Intent(
+            String key,
+            String method,
+            String url,
+            Map<String, String> headers,
+            Instant expiresAt
+    ) {}
+}
@@ -0,0 +1,60 @@
+package com.tpl.tupalle.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.Instant;
+
+/**
+ * An uploaded image object, how many shares use it, and the state of its resized variants, which
+ * live under keys derived from {@link #key} (see ImageVariantService).
+ */
+@Entity
+@Table(name = "image_assets", indexes = {
+        @Index(name = "idx_image_assets_status_updated_at", columnList = "status, updated_at")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Data
+public class ImageAsset {
+
+    public enum Status {
+        PENDING,
+        READY,
+        // Served as uploaded: animated GIFs
+        SKIPPED,
+        FAILED
+    }
+
+    @Id
+    @Column(name = "object_key", length = 512)
+    private String key;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private Integer width;
+
+    private Integer height;
+
+    // Share image entries pointing at this key; unreferenced assets are deleted after a grace period.
+    // Only changed by the counting queries in ImageAssetRepository, never written back from an entity
+    @Column(nullable = false, updatable = false)
+    private int refCount = 0;
+
+    // Last time an upload produced this key (content-addressed keys recur); the grace period runs from here.
+    // Like refCount, only set by queries once the row exists
+    @Column(updatable = false)
+    private Instant lastUploadedAt;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
@@ -2,6 +2,7 @@ package com.tpl.tupalle.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.UuidGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -13,7 +14,11 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "shares")
+@Table(name = "shares", indexes = {
+        @Index(name = "idx_shares_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_shares_like_count_id", columnList = "like_count, id"),
+        @Index(name = "idx_shares_trending_score_id", columnList = "trending_score, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 public class Share {
@@ -33,18 +38,31 @@ public class Share {
     @Column(length = 2000)
     private String description;
 
+    // Batch-fetched so a feed page loads images/snippets of all its shares in one IN (...) query each
+    // Object keys in the images bucket (signed on read by S3Service), or external image URLs
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "share_images", joinColumns = @JoinColumn(name = "share_id"))
     @Column(name = "image_url", length = 1000)
     private List<String> imageUrls = new ArrayList<>();
 
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "share_codes", joinColumns = @JoinColumn(name = "share_id"))
+    @OrderColumn(name = "snippet_index")
     private List<CodeSnippet> codeSnippets = new ArrayList<>();
 
     @Column(nullable = false)
     private long likeCount = 0;
 
+    // Maintained only by SQL in TrendingService, never written back from the entity
+    @Column(nullable = false, updatable = false)
+    private double trendingScore = 0;
+
+    // Epoch trendingScore is relative to; rows catch up with the current epoch one by one
+    @Column(name = "trending_epoch_seconds", nullable = false, updatable = false)
+    private long trendingEpochSeconds = 0;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
@@ -25,10 +25,16 @@ public class ShareLike {
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Epoch seconds; an unlike removes exactly the trending weight this like added. Null for older rows
+    @Column(name = "liked_at")
+    private Long likedAt;
+
     // getters/setters
     public UUID getId() { return id; }
     public Share getShare() { return share; }
     public void setShare(Share share) { this.share = share; }
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
+    public Long getLikedAt() { return likedAt; }
+    public void setLikedAt(Long likedAt) { this.likedAt = likedAt; }
 }
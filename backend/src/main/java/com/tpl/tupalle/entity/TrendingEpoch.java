@@ -0,0 +1,23 @@
+package com.tpl.tupalle.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Single-row table holding the current reference time of shares.trending_score. A like at time t
+ * adds 2^((t - epoch) / halfLife) to the score; the rescaling job moves the epoch forward and rows
+ * are scaled down onto it (each row records its own epoch) so values stay small.
+ */
+@Entity
+@Table(name = "trending_epoch")
+@Data
+public class TrendingEpoch {
+
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "epoch_seconds", nullable = false)
+    private long epochSeconds;
+}
@@ -2,6 +2,7 @@ package com.tpl.tupalle.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -23,13 +24,18 @@ public class User {
     private boolean enabled = true;
 
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
     @JoinTable(name = "users_roles",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id"))
     private Set<Role> roles = new HashSet<>();
 
-    @Column(name = "title")
+    // title and totalLikes are maintained by SQL in UserService; entity saves never overwrite them
+    @Column(name = "title", updatable = false)
     private String title = "Newbie Coder";
+
+    @Column(name = "total_likes", nullable = false, updatable = false)
+    private long totalLikes = 0;
  
     @Column(unique = true, nullable = false)
     private String email;
@@ -0,0 +1,7 @@
+package com.tpl.tupalle.events;
+
+/**
+ * An image object has landed in the bucket (server-side upload or a confirmed direct upload).
+ * Published inside the share transaction when there is one; listeners act on it after commit.
+ */
+public record ImageUploadedEvent(String key) {}
@@ -0,0 +1,15 @@
+package com.tpl.tupalle.events;
+
+import java.util.UUID;
+
+/**
+ * Published inside the create/update/delete transaction of a share. Listeners act on it after commit.
+ */
+public record ShareChangedEvent(UUID shareId, Type type) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,9 @@
+package com.tpl.tupalle.events;
+
+import java.util.UUID;
+
+/**
+ * Published inside the like/unlike transaction when a like row was actually inserted (delta = +1)
+ * or removed (delta = -1) by userId. Listeners act on it after commit.
+ */
+public record ShareLikeChangedEvent(UUID shareId, Long ownerId, Long userId, int delta) {}
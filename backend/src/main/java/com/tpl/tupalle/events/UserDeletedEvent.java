@@ -0,0 +1,6 @@
+package com.tpl.tupalle.events;
+
+/**
+ * Published inside the account deletion transaction. Listeners act on it after commit.
+ */
+public record UserDeletedEvent(Long userId) {}
@@ -0,0 +1,91 @@
+package com.tpl.tupalle.repositories;
+
+import com.tpl.tupalle.entity.ImageAsset;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImageAssetRepository extends JpaRepository<ImageAsset, String> {
+
+    @Query("SELECT a.key FROM ImageAsset a WHERE a.key IN :keys AND a.status = com.tpl.tupalle.entity.ImageAsset.Status.READY")
+    List<String> findReadyKeys(@Param("keys") Collection<String> keys);
+
+    /**
+     * Pending assets not touched since the given time: dropped by a full queue or a restart.
+     */
+    @Query("SELECT a.key FROM ImageAsset a WHERE a.status = com.tpl.tupalle.entity.ImageAsset.Status.PENDING " +
+            "AND a.updatedAt < :before ORDER BY a.updatedAt")
+    List<String> findStalePendingKeys(@Param("before") Instant before, Limit limit);
+
+    /**
+     * Records the outcome of variant generation without touching the counters other writers update
+     * concurrently. A no-op unless the asset is still PENDING.
+     */
+    @Modifying
+    @Query("UPDATE ImageAsset a SET a.status = :status, a.width = :width, a.height = :height, a.updatedAt = :now " +
+            "WHERE a.key = :key AND a.status = com.tpl.tupalle.entity.ImageAsset.Status.PENDING")
+    int completeVariants(@Param("key") String key, @Param("status") ImageAsset.Status status,
+                         @Param("width") Integer width, @Param("height") Integer height, @Param("now") Instant now);
+
+    /**
+     * Counts new references to a key, creating the asset row when the object was never registered
+     * (direct uploads are confirmed inside the share transaction, before their upload event runs).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO image_assets (object_key, status, ref_count, created_at, updated_at, last_uploaded_at) " +
+            "VALUES (:key, 'PENDING', :count, NOW(6), NOW(6), NOW(6)) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + :count", nativeQuery = true)
+    void addReferences(@Param("key") String key, @Param("count") int count);
+
+    @Modifying
+    @Query(value = "UPDATE image_assets SET ref_count = ref_count - :count WHERE object_key = :key", nativeQuery = true)
+    void removeReferences(@Param("key") String key, @Param("count") int count);
+
+    /**
+     * Marks the key as just uploaded, which restarts its grace period.
+     * @return 0 when the asset is not registered (never uploaded, or already collected)
+     */
+    @Modifying
+    @Query(value = "UPDATE image_assets SET last_uploaded_at = NOW(6) WHERE object_key = :key", nativeQuery = true)
+    int touch(@Param("key") String key);
+
+    /**
+     * Registers an uploaded key, or marks an existing one as just uploaded; a single statement so
+     * identical uploads (and {@link #addReferences}) racing on the same key cannot collide.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO image_assets (object_key, status, ref_count, created_at, updated_at, last_uploaded_at) " +
+            "VALUES (:key, 'PENDING', 0, NOW(6), NOW(6), NOW(6)) " +
+            "ON DUPLICATE KEY UPDATE last_uploaded_at = NOW(6)", nativeQuery = true)
+    void registerUpload(@Param("key") String key);
+
+    // Rows from before last_uploaded_at existed fall back to created_at
+    @Query("SELECT a.key FROM ImageAsset a WHERE a.refCount <= 0 AND COALESCE(a.lastUploadedAt, a.createdAt) < :before " +
+            "ORDER BY a.createdAt")
+    List<String> findUnreferencedKeys(@Param("before") Instant before, Limit limit);
+
+    @Query(value = "SELECT DISTINCT image_url FROM share_images WHERE image_url IN (:keys)", nativeQuery = true)
+    List<String> findKeysUsedByShares(@Param("keys") Collection<String> keys);
+
+    @Modifying
+    @Query(value = "UPDATE image_assets SET ref_count = " +
+            "(SELECT COUNT(*) FROM share_images WHERE image_url = :key) WHERE object_key = :key", nativeQuery = true)
+    void recountReferences(@Param("key") String key);
+
+    /**
+     * Deletes the row only if it is still unreferenced and was not uploaded again since the given
+     * time, so exactly one caller (and node) wins and a concurrent {@link #touch} always wins over it.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM image_assets WHERE object_key = :key AND ref_count <= 0 " +
+            "AND COALESCE(last_uploaded_at, created_at) < :before", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("key") String key, @Param("before") Instant before);
+}
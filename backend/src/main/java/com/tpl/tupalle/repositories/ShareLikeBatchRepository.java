@@ -0,0 +1,124 @@
+package com.tpl.tupalle.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC batch statements for like bookkeeping that JPA cannot batch (bulk UPDATEs with per-row
+ * parameters). UUID columns are BINARY(16) as mapped by Hibernate, so ids are bound as bytes.
+ */
+@Repository
+public class ShareLikeBatchRepository {
+
+    private static final RowMapper<Map.Entry<UUID, Long>> DRIFT_ROW =
+            (rs, rowNum) -> Map.entry(toUuid(rs.getBytes(1)), rs.getLong(2));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShareLikeBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts likes of one user in a single JDBC batch. Each element of the result is 1 when the like
+     * was added and 0 when uk_share_like made it a no-op (requires rewriteBatchedStatements=false,
+     * the Connector/J default, so per-statement counts are reported).
+     */
+    public int[] insertLikesIgnoringDuplicates(Long userId, List<UUID> shareIds, long likedAt) {
+        List<Object[]> args = new ArrayList<>(shareIds.size());
+        for (UUID shareId : shareIds) {
+            args.add(new Object[]{toBytes(UUID.randomUUID()), toBytes(shareId), userId, likedAt});
+        }
+        return jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO share_likes (id, share_id, user_id, liked_at) VALUES (?, ?, ?, ?)", args);
+    }
+
+    /**
+     * Deletes likes of one user in a single JDBC batch; each element of the result is the number of rows removed.
+     */
+    public int[] deleteLikes(Long userId, List<UUID> shareIds) {
+        List<Object[]> args = new ArrayList<>(shareIds.size());
+        for (UUID shareId : shareIds) {
+            args.add(new Object[]{toBytes(shareId), userId});
+        }
+        return jdbcTemplate.batchUpdate("DELETE FROM share_likes WHERE share_id = ? AND user_id = ?", args);
+    }
+
+    /**
+     * Applies like_count deltas for many shares in one JDBC batch.
+     */
+    public void addToLikeCounts(Map<UUID, Long> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((shareId, delta) -> args.add(new Object[]{delta, toBytes(shareId)}));
+        jdbcTemplate.batchUpdate("UPDATE shares SET like_count = GREATEST(like_count + ?, 0) WHERE id = ?", args);
+    }
+
+    /**
+     * Adds the trending weight of the given number of likes per share at time {@code now}, first
+     * moving each row to the current trending epoch (see {@link ShareRepository#addTrendingWeight}).
+     */
+    public void addTrendingWeights(Map<UUID, Long> likes, long now, double halfLifeSeconds) {
+        List<Object[]> args = new ArrayList<>(likes.size());
+        likes.forEach((shareId, count) ->
+                args.add(new Object[]{halfLifeSeconds, count, now, halfLifeSeconds, toBytes(shareId)}));
+        String epoch = ShareRepository.CURRENT_TRENDING_EPOCH;
+        jdbcTemplate.batchUpdate("UPDATE shares SET trending_score = " +
+                "CASE WHEN trending_score = 0 THEN 0 ELSE trending_score * " +
+                "POW(2, (trending_epoch_seconds - " + epoch + ") / ?) END " +
+                "+ ? * POW(2, (? - " + epoch + ") / ?), " +
+                "trending_epoch_seconds = " + epoch + " WHERE id = ?", args);
+    }
+
+    /**
+     * Number of share_likes rows (the source of truth) minus like_count for up to {@code limit}
+     * shares with an id above {@code after}, in id order, zero drift included so the caller can
+     * continue after the last id. Each share is counted through the share_likes index.
+     */
+    public List<Map.Entry<UUID, Long>> findLikeCountDriftAfter(UUID after, int limit) {
+        return jdbcTemplate.query(
+                "SELECT s.id, (SELECT COUNT(*) FROM share_likes l WHERE l.share_id = s.id) - s.like_count AS drift " +
+                "FROM shares s WHERE s.id > ? ORDER BY s.id LIMIT ?", DRIFT_ROW, toBytes(after), limit);
+    }
+
+    /**
+     * Shares among the given ones whose like_count differs from their share_likes rows, with the difference.
+     */
+    public Map<UUID, Long> findLikeCountDrift(Collection<UUID> shareIds) {
+        if (shareIds.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(shareIds.size(), "?"));
+        return collectDrift(jdbcTemplate.query(
+                "SELECT s.id, (SELECT COUNT(*) FROM share_likes l WHERE l.share_id = s.id) - s.like_count AS drift " +
+                "FROM shares s WHERE s.id IN (" + placeholders + ")", DRIFT_ROW,
+                shareIds.stream().map(ShareLikeBatchRepository::toBytes).toArray()));
+    }
+
+    private static Map<UUID, Long> collectDrift(List<Map.Entry<UUID, Long>> rows) {
+        Map<UUID, Long> drift = new HashMap<>();
+        rows.stream().filter(row -> row.getValue() != 0).forEach(row -> drift.put(row.getKey(), row.getValue()));
+        return drift;
+    }
+
+    static UUID toUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
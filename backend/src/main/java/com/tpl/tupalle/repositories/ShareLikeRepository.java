@@ -1,13 +1,19 @@
 package com.tpl.tupalle.repositories;
 
 import com.tpl.tupalle.entity.ShareLike;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface ShareLikeRepository extends JpaRepository<ShareLike, UUID> {
@@ -15,10 +21,41 @@ public interface ShareLikeRepository extends JpaRepository<ShareLike, UUID> {
     Optional<ShareLike> findByShareIdAndUserId(UUID shareId, Long userId);
     long countByShareId(UUID shareId);
     
-    @Query("SELECT sl.share FROM ShareLike sl WHERE sl.user.id = :userId AND sl.share.owner.id != :userId ORDER BY sl.share.createdAt DESC")
+    // Returns 1 when the like was added, 0 when uk_share_like (or a missing share) made it a no-op
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO share_likes (id, share_id, user_id, liked_at) " +
+                   "VALUES (:id, :shareId, :userId, :likedAt)", nativeQuery = true)
+    int insertIgnore(@Param("id") UUID id, @Param("shareId") UUID shareId, @Param("userId") Long userId,
+                     @Param("likedAt") long likedAt);
+    
+    @Modifying
+    @Query("DELETE FROM ShareLike sl WHERE sl.share.id = :shareId AND sl.user.id = :userId")
+    int deleteByShareIdAndUserIdReturningCount(@Param("shareId") UUID shareId, @Param("userId") Long userId);
+    
+    // Liked subset of the given shares for one user, resolved in a single IN (...) query
+    @Query("SELECT sl.share.id FROM ShareLike sl WHERE sl.user.id = :userId AND sl.share.id IN :shareIds")
+    Set<UUID> findLikedShareIds(@Param("userId") Long userId, @Param("shareIds") Collection<UUID> shareIds);
+    
+    // All liked share ids of a user, capped by the caller; used to build the liked-set filter
+    @Query("SELECT sl.share.id FROM ShareLike sl WHERE sl.user.id = :userId")
+    List<UUID> findShareIdsByUserId(@Param("userId") Long userId, Limit limit);
+    
+    @Query(value = "SELECT s FROM ShareLike sl JOIN sl.share s JOIN FETCH s.owner " +
+                   "WHERE sl.user.id = :userId AND s.owner.id != :userId ORDER BY s.createdAt DESC",
+           countQuery = "SELECT COUNT(sl) FROM ShareLike sl WHERE sl.user.id = :userId AND sl.share.owner.id != :userId")
     Page<com.tpl.tupalle.entity.Share> findLikedSharesByUserIdExcludingOwnShares(@Param("userId") Long userId, Pageable pageable);
     
+    // Same as above without the count query; hasNext comes from fetching size+1 rows
+    @Query("SELECT s FROM ShareLike sl JOIN sl.share s JOIN FETCH s.owner " +
+           "WHERE sl.user.id = :userId AND s.owner.id != :userId ORDER BY s.createdAt DESC")
+    Slice<com.tpl.tupalle.entity.Share> findLikedSharesSliceByUserIdExcludingOwnShares(@Param("userId") Long userId, Pageable pageable);
+    
     void deleteByShareId(UUID shareId);
     
+    // Bulk delete reporting how many likes the share had (share_likes is the source of truth)
+    @Modifying
+    @Query("DELETE FROM ShareLike sl WHERE sl.share.id = :shareId")
+    int deleteAllByShareIdReturningCount(@Param("shareId") UUID shareId);
+    
     void deleteByUserId(Long userId);
 }
@@ -1,28 +1,214 @@
 package com.tpl.tupalle.repositories;
 
 import com.tpl.tupalle.entity.Share;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ShareRepository extends JpaRepository<Share, UUID> {
     
+    // Row of the summary projection over share_codes; preview is cut in SQL so full bodies never leave the database
+    interface SnippetPreview {
+        UUID getShareId();
+        String getLanguage();
+        String getPreview();
+        int getContentLength();
+    }
+    
+    interface ShareVersion {
+        UUID getId();
+        Instant getUpdatedAt();
+        long getLikeCount();
+        String getOwnerTitle();
+    }
+    
+    interface ShareLikeState {
+        UUID getId();
+        Long getOwnerId();
+        long getLikeCount();
+    }
+    
+    interface ShareTitle {
+        UUID getId();
+        String getTitle();
+        long getLikeCount();
+    }
+    
+    interface ShareLikeCount {
+        UUID getId();
+        long getLikeCount();
+    }
+    
+    // Listing queries fetch the owner in the same statement; images and snippets are batch-fetched (see Share)
     // Get shares by owner
+    @EntityGraph(attributePaths = "owner")
     Page<Share> findAllByOwnerId(Long ownerId, Pageable pageable);
     
     // Get shares by owner username
     List<Share> findByOwnerUsername(String ownerUsername);
     
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Page<Share> findAll(Pageable pageable);
+    
     // Search shares by title (case-insensitive)
+    @EntityGraph(attributePaths = "owner")
     Page<Share> findByTitleContainingIgnoreCase(String title, Pageable pageable);
     
     // Get most liked shares
+    @EntityGraph(attributePaths = "owner")
     Page<Share> findAllByOrderByLikeCountDesc(Pageable pageable);
     
     // Get recent shares
+    @EntityGraph(attributePaths = "owner")
     Page<Share> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    
+    // Keyset (cursor) pages for the recent feed, backed by idx_shares_created_at_id
+    @EntityGraph(attributePaths = "owner")
+    @Query("SELECT s FROM Share s ORDER BY s.createdAt DESC, s.id DESC")
+    List<Share> findRecentFirstPage(Limit limit);
+    
+    @EntityGraph(attributePaths = "owner")
+    @Query("SELECT s FROM Share s WHERE s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Share> findRecentAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, Limit limit);
+    
+    // Keyset (cursor) pages for the most-liked feed, backed by idx_shares_like_count_id
+    @EntityGraph(attributePaths = "owner")
+    @Query("SELECT s FROM Share s ORDER BY s.likeCount DESC, s.id DESC")
+    List<Share> findMostLikedFirstPage(Limit limit);
+    
+    @EntityGraph(attributePaths = "owner")
+    @Query("SELECT s FROM Share s WHERE s.likeCount < :likeCount OR (s.likeCount = :likeCount AND s.id < :id) " +
+           "ORDER BY s.likeCount DESC, s.id DESC")
+    List<Share> findMostLikedAfter(@Param("likeCount") long likeCount, @Param("id") UUID id, Limit limit);
+    
+    // Rows come back in snippet order, so the first row per share is its first snippet; lengths are in characters
+    @Query("SELECT s.id AS shareId, c.language AS language, SUBSTRING(c.content, 1, :previewLength) AS preview, " +
+           "FUNCTION('CHAR_LENGTH', c.content) AS contentLength FROM Share s JOIN s.codeSnippets c " +
+           "WHERE s.id IN :shareIds ORDER BY s.id, INDEX(c)")
+    List<SnippetPreview> findSnippetPreviews(@Param("shareIds") Collection<UUID> shareIds,
+                                             @Param("previewLength") int previewLength);
+    
+    // Bulk hydration of ids coming from a ranking; callers restore the ranking order
+    @EntityGraph(attributePaths = "owner")
+    List<Share> findAllByIdIn(Collection<UUID> ids);
+    
+    // Keyset scan used to build and reconcile the most-liked ranking
+    @Query("SELECT s.id AS id, s.likeCount AS likeCount FROM Share s WHERE s.id > :after ORDER BY s.id")
+    List<ShareLikeCount> findLikeCountsAfter(@Param("after") UUID after, Limit limit);
+    
+    @Query("SELECT s.id AS id, s.likeCount AS likeCount FROM Share s WHERE s.id IN :ids")
+    List<ShareLikeCount> findLikeCounts(@Param("ids") Collection<UUID> ids);
+    
+    // Trending feed, backed by idx_shares_trending_score_id
+    @EntityGraph(attributePaths = "owner")
+    Page<Share> findAllByOrderByTrendingScoreDescIdDesc(Pageable pageable);
+    
+    String CURRENT_TRENDING_EPOCH = "(SELECT e.epoch_seconds FROM trending_epoch e WHERE e.id = 1)";
+    
+    // Adds the weight of one like at time :now, first moving the row to the current trending epoch.
+    // Single-table UPDATE assignments run left to right, so the score is scaled with the old row epoch
+    @Modifying
+    @Query(value = "UPDATE shares SET trending_score = " +
+                   "CASE WHEN trending_score = 0 THEN 0 ELSE trending_score * " +
+                   "POW(2, (trending_epoch_seconds - " + CURRENT_TRENDING_EPOCH + ") / :halfLife) END " +
+                   "+ POW(2, (:now - " + CURRENT_TRENDING_EPOCH + ") / :halfLife), " +
+                   "trending_epoch_seconds = " + CURRENT_TRENDING_EPOCH + " WHERE id = :id", nativeQuery = true)
+    int addTrendingWeight(@Param("id") UUID id, @Param("now") long now, @Param("halfLife") double halfLifeSeconds);
+    
+    // Removes the weight the user's likes added, relative to each row's own epoch; run before the likes are deleted
+    @Modifying
+    @Query(value = "UPDATE shares s JOIN share_likes l ON l.share_id = s.id SET s.trending_score = " +
+                   "GREATEST(0, s.trending_score - POW(2, (l.liked_at - s.trending_epoch_seconds) / :halfLife)) " +
+                   "WHERE l.user_id = :userId AND l.share_id IN (:shareIds) AND l.liked_at IS NOT NULL",
+           nativeQuery = true)
+    int removeTrendingWeights(@Param("userId") Long userId, @Param("shareIds") Collection<UUID> shareIds,
+                              @Param("halfLife") double halfLifeSeconds);
+    
+    // Keyset walk over shares with a score, used by the chunked rescale
+    @Query("SELECT s.id FROM Share s WHERE s.id > :after AND s.trendingScore > 0 ORDER BY s.id")
+    List<UUID> findTrendingIdsAfter(@Param("after") UUID after, Limit limit);
+    
+    @Modifying
+    @Query(value = "UPDATE shares SET trending_score = " +
+                   "CASE WHEN trending_score * POW(2, (trending_epoch_seconds - :epoch) / :halfLife) < :floor THEN 0 " +
+                   "ELSE trending_score * POW(2, (trending_epoch_seconds - :epoch) / :halfLife) END, " +
+                   "trending_epoch_seconds = :epoch WHERE id IN (:ids) AND trending_epoch_seconds < :epoch",
+           nativeQuery = true)
+    int rescaleTrendingScores(@Param("ids") Collection<UUID> ids, @Param("epoch") long epochSeconds,
+                              @Param("halfLife") double halfLifeSeconds, @Param("floor") double floor);
+    
+    // Scores written before rows carried their own epoch are relative to the shared one
+    @Modifying
+    @Query(value = "UPDATE shares SET trending_epoch_seconds = " + CURRENT_TRENDING_EPOCH +
+                   " WHERE trending_epoch_seconds = 0 AND trending_score > 0", nativeQuery = true)
+    int adoptTrendingEpoch();
+    
+    @Query("SELECT s.id AS id, s.updatedAt AS updatedAt, s.likeCount AS likeCount, s.owner.title AS ownerTitle " +
+           "FROM Share s WHERE s.id = :id")
+    Optional<ShareVersion> findVersionById(@Param("id") UUID id);
+    
+    @Query("SELECT i FROM Share s JOIN s.imageUrls i WHERE s.id = :id")
+    List<String> findImageUrlsById(@Param("id") UUID id);
+    
+    // Count-free variants: Spring Data fetches size+1 rows to compute hasNext and skips count(*)
+    @EntityGraph(attributePaths = "owner")
+    @Query("SELECT s FROM Share s")
+    Slice<Share> findSliceAll(Pageable pageable);
+    
+    @EntityGraph(attributePaths = "owner")
+    Slice<Share> findSliceByOwnerId(Long ownerId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "owner")
+    Slice<Share> findSliceByTitleContainingIgnoreCase(String title, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "owner")
+    Slice<Share> findSliceByOrderByLikeCountDesc(Pageable pageable);
+    
+    @EntityGraph(attributePaths = "owner")
+    Slice<Share> findSliceByOrderByCreatedAtDesc(Pageable pageable);
+    
+    @EntityGraph(attributePaths = "owner")
+    Slice<Share> findSliceByOrderByTrendingScoreDescIdDesc(Pageable pageable);
+    
+    @Query("SELECT s.owner.id FROM Share s WHERE s.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") UUID id);
+    
+    @Query("SELECT s.id AS id, s.owner.id AS ownerId, s.likeCount AS likeCount FROM Share s WHERE s.id IN :ids")
+    List<ShareLikeState> findLikeStates(@Param("ids") Collection<UUID> ids);
+    
+    // Keyset walk over all share ids, used by index rebuilds
+    @Query("SELECT s.id FROM Share s WHERE s.id > :after ORDER BY s.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Limit limit);
+    
+    @Query("SELECT s.id FROM Share s WHERE s.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+    
+    @Query("SELECT s.id FROM Share s WHERE s.updatedAt >= :since")
+    List<UUID> findIdsUpdatedSince(@Param("since") Instant since);
+    
+    @Query("SELECT s.id AS id, s.title AS title, s.likeCount AS likeCount FROM Share s WHERE s.id = :id")
+    Optional<ShareTitle> findTitleById(@Param("id") UUID id);
+    
+    // Keyset walk over titles, most liked first, backed by idx_shares_like_count_id
+    @Query("SELECT s.id AS id, s.title AS title, s.likeCount AS likeCount FROM Share s ORDER BY s.likeCount DESC, s.id DESC")
+    List<ShareTitle> findMostLikedTitles(Limit limit);
+    
+    @Query("SELECT s.id AS id, s.title AS title, s.likeCount AS likeCount FROM Share s " +
+           "WHERE s.likeCount < :likeCount OR (s.likeCount = :likeCount AND s.id < :id) " +
+           "ORDER BY s.likeCount DESC, s.id DESC")
+    List<ShareTitle> findMostLikedTitlesAfter(@Param("likeCount") long likeCount, @Param("id") UUID id, Limit limit);
 }
-
@@ -0,0 +1,21 @@
+package com.tpl.tupalle.repositories;
+
+import com.tpl.tupalle.entity.TrendingEpoch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TrendingEpochRepository extends JpaRepository<TrendingEpoch, Integer> {
+
+    /**
+     * Locks the epoch row so concurrent rescales (e.g. on several nodes) run one after another
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM TrendingEpoch e WHERE e.id = " + TrendingEpoch.SINGLETON_ID)
+    Optional<TrendingEpoch> lockCurrent();
+}
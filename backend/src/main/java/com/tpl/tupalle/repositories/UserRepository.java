@@ -1,15 +1,69 @@
 package com.tpl.tupalle.repositories;
 
 import com.tpl.tupalle.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+   interface UsernameLikes {
+      Long getId();
+      String getUsername();
+      long getTotalLikes();
+   }
+   
+   interface UserLikesDrift {
+      Long getId();
+      Long getDrift();
+   }
+   
    Optional<User> findByUsername(String username);
+   @Query("SELECT u.id FROM User u WHERE u.username = :username")
+   Optional<Long> findIdByUsername(@Param("username") String username);
+   
+   @Query("SELECT u.title FROM User u WHERE u.username = :username")
+   Optional<String> findTitleByUsername(@Param("username") String username);
+   
+   @Query("SELECT u.totalLikes FROM User u WHERE u.username = :username")
+   Optional<Long> findTotalLikesByUsername(@Param("username") String username);
+   
+   @Modifying
+   @Query("UPDATE User u SET u.totalLikes = CASE WHEN u.totalLikes + :delta < 0 THEN 0 ELSE u.totalLikes + :delta END " +
+          "WHERE u.id = :id")
+   int addToTotalLikes(@Param("id") Long id, @Param("delta") long delta);
+   
+   // Title derived from total_likes in SQL so it never reads a stale counter
+   @Modifying
+   @Query("UPDATE User u SET u.title = CASE WHEN u.totalLikes >= :masterLikes THEN :master " +
+          "WHEN u.totalLikes >= :enthusiastLikes THEN :enthusiast ELSE :newbie END WHERE u.id = :id")
+   int refreshTitle(@Param("id") Long id,
+                    @Param("masterLikes") long masterLikes, @Param("master") String master,
+                    @Param("enthusiastLikes") long enthusiastLikes, @Param("enthusiast") String enthusiast,
+                    @Param("newbie") String newbie);
+   
+   // Counts share_likes rather than summing shares.like_count, which lags committed likes (write-behind)
+   @Query(value = "SELECT u.id AS id, (SELECT COUNT(*) FROM share_likes l JOIN shares s ON s.id = l.share_id " +
+                  "WHERE s.owner_id = u.id) - u.total_likes AS drift FROM users u " +
+                  "WHERE u.id > :after ORDER BY u.id LIMIT :limit", nativeQuery = true)
+   List<UserLikesDrift> findTotalLikesDriftAfter(@Param("after") long after, @Param("limit") int limit);
+   
+   @Query(value = "SELECT u.id AS id, (SELECT COUNT(*) FROM share_likes l JOIN shares s ON s.id = l.share_id " +
+                  "WHERE s.owner_id = u.id) - u.total_likes AS drift FROM users u WHERE u.id IN (:ids)",
+          nativeQuery = true)
+   List<UserLikesDrift> findTotalLikesDrift(@Param("ids") Collection<Long> ids);
+   
+   @Query("SELECT u.id AS id, u.username AS username, u.totalLikes AS totalLikes FROM User u " +
+          "ORDER BY u.totalLikes DESC, u.id")
+   List<UsernameLikes> findMostLikedUsernames(Limit limit);
    Optional<User> findByEmail(String email);
    Optional<User> findByVerificationToken(String verificationToken);
    Optional<User> findByResetPasswordToken(String resetPasswordToken);
@@ -5,11 +5,10 @@ import com.tpl.tupalle.entity.Role;
 import com.tpl.tupalle.entity.User;
 import com.tpl.tupalle.repositories.RoleRepository;
 import com.tpl.tupalle.repositories.UserRepository;
-import com.tpl.tupalle.repositories.ShareRepository;
-import com.tpl.tupalle.repositories.ShareLikeRepository;
 import com.tpl.tupalle.repositories.AuthProviderRepository;
-import com.tpl.tupalle.entity.Share;
 import com.tpl.tupalle.entity.AuthProvider;
+import com.tpl.tupalle.events.UserDeletedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,7 +18,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Pageable;
 
 @Service
 @Slf4j
@@ -27,23 +25,23 @@ public class AuthService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final ShareRepository shareRepository;
-    private final ShareLikeRepository shareLikeRepository;
+    private final ShareService shareService;
     private final AuthProviderRepository authProviderRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final ApplicationEventPublisher events;
 
     public AuthService(UserRepository userRepository, RoleRepository roleRepository,
-            ShareRepository shareRepository, ShareLikeRepository shareLikeRepository,
+            ShareService shareService,
             AuthProviderRepository authProviderRepository, PasswordEncoder passwordEncoder,
-            EmailService emailService) {
+            EmailService emailService, ApplicationEventPublisher events) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.shareRepository = shareRepository;
-        this.shareLikeRepository = shareLikeRepository;
+        this.shareService = shareService;
         this.authProviderRepository = authProviderRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
+        this.events = events;
     }
 
     @Transactional
@@ -219,22 +217,8 @@ public class AuthService {
         Long userId = user.getId();
 
         try {
-
-            List<Share> likedShares = shareLikeRepository.findLikedSharesByUserIdExcludingOwnShares(userId,
-                    Pageable.unpaged()).getContent();
-
-            for (Share share : likedShares) {
-                share.setLikeCount(share.getLikeCount() - 1);
-                shareRepository.save(share);
-            }
-
-            shareLikeRepository.deleteByUserId(userId);
-
-            List<Share> userShares = shareRepository.findByOwnerUsername(username);
-            for (Share share : userShares) {
-                shareLikeRepository.deleteByShareId(share.getId());
-                shareRepository.delete(share);
-            }
+            // Shares and likes go through ShareService so counters, caches and indexes follow
+            shareService.deleteUserContent(username);
 
             List<AuthProvider> authProviders = authProviderRepository.findByUserId(userId);
             for (AuthProvider authProvider : authProviders) {
@@ -244,6 +228,7 @@ public class AuthService {
             user.getRoles().clear();
 
             userRepository.delete(user);
+            events.publishEvent(new UserDeletedEvent(userId));
 
             return new AuthResponse(null, "Account deleted successfully", true);
         } catch (Exception e) {
@@ -0,0 +1,45 @@
+package com.tpl.tupalle.services;
+
+/**
+ * CharSequence view that aborts regex matching once a deadline has passed, so a pathological
+ * user-supplied pattern cannot pin a request thread on catastrophic backtracking.
+ */
+final class DeadlineCharSequence implements CharSequence {
+
+    static final class DeadlineExceededException extends RuntimeException {
+        DeadlineExceededException() {
+            super("Regex evaluation deadline exceeded", null, false, false);
+        }
+    }
+
+    private final CharSequence inner;
+    private final long deadlineNanos;
+
+    DeadlineCharSequence(CharSequence inner, long deadlineNanos) {
+        this.inner = inner;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (System.nanoTime() > deadlineNanos) {
+            throw new DeadlineExceededException();
+        }
+        return inner.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return inner.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new DeadlineCharSequence(inner.subSequence(start, end), deadlineNanos);
+    }
+
+    @Override
+    public String toString() {
+        return inner.toString();
+    }
+}
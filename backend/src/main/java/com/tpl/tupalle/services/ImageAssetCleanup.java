@@ -0,0 +1,89 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.repositories.ImageAssetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes image objects (and their variants) that no share references anymore.
+ * <p>
+ * Only assets not uploaded within the grace period are considered, so an image uploaded (or
+ * deduplicated onto an existing object) a moment before its share is saved is never collected.
+ * Before deleting, candidates are checked against share_images once more: counts that drifted
+ * (rows registered before reference counting existed) are corrected instead.
+ * <p>
+ * The row is deleted before the objects, and only while it is still unreferenced and not uploaded
+ * since the cutoff. An upload of the same content touches the row first and re-sends the bytes
+ * when the row is gone (see S3Service), so it is lost only if its PUT lands between the row delete
+ * and the S3 delete of this job.
+ * <p>
+ * Only objects under the prefixes uploads are written to are deleted; an asset row for any other
+ * key (registered before shares were limited to issued keys) is dropped without touching S3.
+ */
+@Slf4j
+@Component
+public class ImageAssetCleanup {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_BATCHES = 50;
+
+    private final ImageAssetRepository assets;
+    private final S3Service s3Service;
+    private final TransactionTemplate tx;
+    private final Duration grace;
+
+    public ImageAssetCleanup(ImageAssetRepository assets, S3Service s3Service,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.images.orphan-grace:24h}") Duration grace) {
+        this.assets = assets;
+        this.s3Service = s3Service;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.grace = grace;
+    }
+
+    @Scheduled(cron = "${app.images.orphan-cleanup-cron:0 30 3 * * *}")
+    public void deleteUnreferenced() {
+        int deleted = 0;
+        Instant before = Instant.now().minus(grace);
+        for (int batch = 0; batch < MAX_BATCHES; batch++) {
+            List<String> keys = assets.findUnreferencedKeys(before, Limit.of(BATCH_SIZE));
+            if (keys.isEmpty()) {
+                break;
+            }
+            Set<String> used = new HashSet<>(assets.findKeysUsedByShares(keys));
+            for (String key : keys) {
+                if (used.contains(key)) {
+                    tx.executeWithoutResult(status -> assets.recountReferences(key));
+                } else if (Boolean.TRUE.equals(tx.execute(status -> assets.deleteIfUnreferenced(key, before) == 1))) {
+                    if (s3Service.isManagedKey(key)) {
+                        deleteObjects(key);
+                        deleted++;
+                    } else {
+                        log.warn("Dropped asset row of unmanaged key {} without deleting the object", key);
+                    }
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} unreferenced images", deleted);
+        }
+    }
+
+    private void deleteObjects(String key) {
+        s3Service.deleteImage(key);
+        for (ImageVariants.Variant variant : ImageVariants.Variant.values()) {
+            s3Service.deleteImage(ImageVariants.keyFor(key, variant));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.tpl.tupalle.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off rewrite of share_images rows that still hold presigned URLs (stored before shares kept
+ * object keys) into plain keys. Idempotent, so it simply runs on every startup; reads normalize
+ * legacy URLs as well, so it does not block anything.
+ */
+@Component
+@Slf4j
+public class ImageKeyMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final S3Service s3Service;
+
+    public ImageKeyMigration(JdbcTemplate jdbcTemplate, S3Service s3Service) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.s3Service = s3Service;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        try {
+            List<String> urls = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT image_url FROM share_images WHERE image_url LIKE 'http%'", String.class);
+            int rewritten = 0;
+            for (String url : urls) {
+                String key = s3Service.toKey(url);
+                if (key != null) {
+                    rewritten += jdbcTemplate.update("UPDATE share_images SET image_url = ? WHERE image_url = ?", key, url);
+                }
+            }
+            if (rewritten > 0) {
+                log.info("Rewrote {} presigned image URLs to object keys", rewritten);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Image key migration failed: {}", e.getMessage());
+        }
+    }
+}
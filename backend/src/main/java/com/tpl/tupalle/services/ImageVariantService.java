@@ -0,0 +1,272 @@
+package com.tpl.tupalle.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.tpl.tupalle.entity.DTO.ShareImage;
+import com.tpl.tupalle.entity.ImageAsset;
+import com.tpl.tupalle.events.ImageUploadedEvent;
+import com.tpl.tupalle.repositories.ImageAssetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates resized, metadata-free JPEG variants of uploaded images in the background and maps
+ * stored image references to the URLs of those variants.
+ * <p>
+ * Work runs on a fixed number of threads behind a bounded queue, so at most {@code workers}
+ * decoded images are in memory at once. When the queue is full the asset simply stays PENDING
+ * and the periodic sweep submits it again later; uploads never wait for the pipeline.
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private final ImageAssetRepository assets;
+    private final S3Service s3Service;
+    private final TransactionTemplate newTx;
+    private final ThreadPoolExecutor workers;
+    // Keys currently queued or being processed on this node, so the sweep does not submit them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Object key -> variants ready. READY never changes back, anything else is re-checked soon
+    private final Cache<String, Boolean> readyKeys;
+    private final Duration retryAfter;
+
+    private final Counter generated;
+    private final Counter skipped;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ImageVariantService(ImageAssetRepository assets, S3Service s3Service,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${app.images.variants.workers:2}") int workerCount,
+                               @Value("${app.images.variants.queue-capacity:200}") int queueCapacity,
+                               @Value("${app.images.variants.retry-after:2m}") Duration retryAfter,
+                               @Value("${app.images.variants.status-ttl:1m}") Duration statusTtl) {
+        this.assets = assets;
+        this.s3Service = s3Service;
+        this.retryAfter = retryAfter;
+        // Upload events arrive after commit, where the original transaction can no longer write
+        this.newTx = new TransactionTemplate(transactionManager);
+        this.newTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.readyKeys = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfter(new Expiry<String, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(String key, Boolean isReady, long currentTime) {
+                        return (isReady ? Duration.ofDays(1) : statusTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Boolean isReady, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, isReady, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Boolean isReady, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, readyKeys, "image-variant-status");
+
+        this.generated = Counter.builder("images.variants").tag("result", "ready").register(meterRegistry);
+        this.skipped = Counter.builder("images.variants").tag("result", "skipped").register(meterRegistry);
+        this.failed = Counter.builder("images.variants").tag("result", "failed").register(meterRegistry);
+        this.rejected = Counter.builder("images.variants").tag("result", "rejected")
+                .description("Submissions refused by the full queue; retried by the sweep").register(meterRegistry);
+        Gauge.builder("images.variants.queue.size", workers, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageUploaded(ImageUploadedEvent event) {
+        newTx.executeWithoutResult(status -> assets.registerUpload(event.key()));
+        submit(event.key());
+    }
+
+    /**
+     * Re-submits assets that stayed PENDING: refused by a full queue, or lost in a restart.
+     */
+    @Scheduled(fixedDelayString = "${app.images.variants.sweep-interval-ms:60000}")
+    public void sweepPending() {
+        int free = workers.getQueue().remainingCapacity();
+        if (free == 0) {
+            return;
+        }
+        for (String key : assets.findStalePendingKeys(Instant.now().minus(retryAfter), Limit.of(free))) {
+            if (!submit(key)) {
+                return;
+            }
+        }
+    }
+
+    private boolean submit(String key) {
+        if (!inFlight.add(key)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    process(key);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            rejected.increment();
+            return false;
+        }
+    }
+
+    private void process(String key) {
+        ImageAsset asset = assets.findById(key).orElse(null);
+        if (asset == null || asset.getStatus() != ImageAsset.Status.PENDING) {
+            return;
+        }
+        ImageAsset.Status status;
+        Integer width = null;
+        Integer height = null;
+        try {
+            ImageVariants.Rendered rendered;
+            try (InputStream original = s3Service.openObject(key)) {
+                rendered = ImageVariants.render(original);
+            }
+            if (rendered == null) {
+                status = ImageAsset.Status.SKIPPED;
+                skipped.increment();
+            } else {
+                for (Map.Entry<ImageVariants.Variant, byte[]> variant : rendered.variants().entrySet()) {
+                    s3Service.putImmutableJpeg(ImageVariants.keyFor(key, variant.getKey()), variant.getValue());
+                }
+                width = rendered.width();
+                height = rendered.height();
+                status = ImageAsset.Status.READY;
+                generated.increment();
+            }
+        } catch (IllegalArgumentException | NoSuchKeyException e) {
+            log.warn("No variants for image {}: {}", key, e.getMessage());
+            status = ImageAsset.Status.FAILED;
+            failed.increment();
+        } catch (Exception e) {
+            // Transient (S3, I/O): stays PENDING and is picked up by the sweep
+            log.warn("Generating variants for image {} failed, will retry: {}", key, e.getMessage());
+            return;
+        }
+        // Targeted update: shares and uploads change ref_count and last_uploaded_at while rendering runs
+        ImageAsset.Status result = status;
+        Integer resultWidth = width;
+        Integer resultHeight = height;
+        newTx.executeWithoutResult(tx -> assets.completeVariants(key, result, resultWidth, resultHeight, Instant.now()));
+        if (status == ImageAsset.Status.READY) {
+            readyKeys.put(key, true);
+        }
+    }
+
+    /**
+     * Variant URLs for the stored image references of one share.
+     */
+    public List<ShareImage> images(List<String> imageRefs) {
+        Set<String> ready = readyAmong(imageRefs);
+        return imageRefs.stream().map(ref -> toImage(ref, ready)).toList();
+    }
+
+    /**
+     * URL for listing cards: the thumbnail when it exists, otherwise the original.
+     */
+    public String thumbnailUrl(String imageRef) {
+        String key = s3Service.toKey(imageRef);
+        if (key != null && readyAmong(List.of(imageRef)).contains(key)) {
+            return s3Service.signedUrl(ImageVariants.keyFor(key, ImageVariants.Variant.THUMBNAIL));
+        }
+        return s3Service.signedUrl(imageRef);
+    }
+
+    /**
+     * Loads the variant state of a whole page of image references with at most one query, so
+     * mapping the shares afterwards is answered from the cache.
+     */
+    public Set<String> readyAmong(Collection<String> imageRefs) {
+        Set<String> keys = new HashSet<>();
+        for (String ref : imageRefs) {
+            String key = s3Service.toKey(ref);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return Set.of();
+        }
+        Map<String, Boolean> state = readyKeys.getAll(keys, missing -> {
+            Map<String, Boolean> loaded = new HashMap<>();
+            missing.forEach(key -> loaded.put(key, false));
+            assets.findReadyKeys(Set.copyOf(missing)).forEach(key -> loaded.put(key, true));
+            return loaded;
+        });
+        Set<String> ready = new HashSet<>();
+        state.forEach((key, isReady) -> {
+            if (Objects.equals(isReady, true)) {
+                ready.add(key);
+            }
+        });
+        return ready;
+    }
+
+    private ShareImage toImage(String imageRef, Set<String> ready) {
+        String original = s3Service.signedUrl(imageRef);
+        String key = s3Service.toKey(imageRef);
+        if (key == null || !ready.contains(key)) {
+            return new ShareImage(original, original, original, original);
+        }
+        return new ShareImage(original,
+                s3Service.signedUrl(ImageVariants.keyFor(key, ImageVariants.Variant.THUMBNAIL)),
+                s3Service.signedUrl(ImageVariants.keyFor(key, ImageVariants.Variant.CARD)),
+                s3Service.signedUrl(ImageVariants.keyFor(key, ImageVariants.Variant.FULL)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
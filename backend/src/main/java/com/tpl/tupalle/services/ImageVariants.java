@@ -0,0 +1,242 @@
+package com.tpl.tupalle.services;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decodes an uploaded image and re-encodes it as JPEG at a few fixed sizes. Only pixels are
+ * written back, so EXIF/GPS and any other metadata is dropped (EXIF orientation is applied first).
+ */
+final class ImageVariants {
+
+    // Decompression bomb guard, checked from the header before any pixels are decoded
+    static final long MAX_PIXELS = 100_000_000L;
+    private static final float JPEG_QUALITY = 0.8f;
+
+    enum Variant {
+        THUMBNAIL("thumb", 320),
+        CARD("card", 800),
+        FULL("full", 1920);
+
+        final String name;
+        final int maxEdge;
+
+        Variant(String name, int maxEdge) {
+            this.name = name;
+            this.maxEdge = maxEdge;
+        }
+    }
+
+    record Rendered(int width, int height, Map<Variant, byte[]> variants) {}
+
+    private ImageVariants() {
+    }
+
+    static String keyFor(String originalKey, Variant variant) {
+        return "variants/" + originalKey + "/" + variant.name + ".jpg";
+    }
+
+    /**
+     * @return the encoded variants, or null for formats that are served as-is (animated GIFs)
+     * @throws IllegalArgumentException when the data is not a decodable image or is too large
+     */
+    static Rendered render(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                if ("gif".equalsIgnoreCase(reader.getFormatName())) {
+                    return null;
+                }
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    throw new IllegalArgumentException("Image has too many pixels: " + width + "x" + height);
+                }
+
+                // Decode at reduced resolution when even the largest variant needs far fewer pixels
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / Variant.FULL.maxEdge);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+                int orientation = exifOrientation(reader.getImageMetadata(0));
+                image = orient(image, orientation);
+
+                Map<Variant, byte[]> variants = new EnumMap<>(Variant.class);
+                for (Variant variant : Variant.values()) {
+                    variants.put(variant, encodeJpeg(scale(image, variant.maxEdge)));
+                }
+                boolean quarterTurn = orientation == 6 || orientation == 8;
+                return new Rendered(quarterTurn ? height : width, quarterTurn ? width : height, variants);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales down so the longer edge fits, halving in steps first so large downscales stay sharp.
+     * Always returns an opaque RGB image; transparency is flattened onto white.
+     */
+    static BufferedImage scale(BufferedImage source, int maxEdge) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double factor = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current == source || current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    // Rotations only; the rare mirrored orientations (2, 4, 5, 7) are left as stored
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        int quadrants = switch (orientation) {
+            case 3 -> 2;
+            case 6 -> 1;
+            case 8 -> 3;
+            default -> 0;
+        };
+        if (quadrants == 0) {
+            return image;
+        }
+        boolean swap = quadrants % 2 == 1;
+        int width = swap ? image.getHeight() : image.getWidth();
+        int height = swap ? image.getWidth() : image.getHeight();
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            AffineTransform transform = new AffineTransform();
+            transform.translate(width / 2.0, height / 2.0);
+            transform.quadrantRotate(quadrants);
+            transform.translate(-image.getWidth() / 2.0, -image.getHeight() / 2.0);
+            g.drawImage(image, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * EXIF orientation tag (0x0112) from the APP1 segment of a JPEG, or 1 when there is none.
+     */
+    static int exifOrientation(IIOMetadata metadata) {
+        if (metadata == null || !"javax_imageio_jpeg_image_1.0".equals(metadata.getNativeMetadataFormatName())) {
+            return 1;
+        }
+        Node markers = ((IIOMetadataNode) metadata.getAsTree("javax_imageio_jpeg_image_1.0"))
+                .getElementsByTagName("markerSequence").item(0);
+        if (markers == null) {
+            return 1;
+        }
+        for (Node node = markers.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof IIOMetadataNode marker && "unknown".equals(marker.getNodeName())
+                    && "225".equals(marker.getAttribute("MarkerTag"))
+                    && marker.getUserObject() instanceof byte[] data) {
+                int orientation = exifOrientation(data);
+                if (orientation > 0) {
+                    return orientation;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // data is the APP1 payload: "Exif\0\0" followed by a TIFF header and IFD0
+    static int exifOrientation(byte[] data) {
+        if (data.length < 14 || data[0] != 'E' || data[1] != 'x' || data[2] != 'i' || data[3] != 'f') {
+            return 0;
+        }
+        int tiff = 6;
+        boolean little = data[tiff] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, little);
+        if (ifd < tiff || ifd + 2 > data.length) {
+            return 0;
+        }
+        int entries = readShort(data, ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > data.length) {
+                return 0;
+            }
+            if (readShort(data, entry, little) == 0x0112) {
+                return readShort(data, entry + 8, little);
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean little) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return little ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean little) {
+        int high = readShort(data, little ? offset + 2 : offset, little);
+        int low = readShort(data, little ? offset : offset + 2, little);
+        return (high << 16) | low;
+    }
+}
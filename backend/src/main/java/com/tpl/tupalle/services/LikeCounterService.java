@@ -0,0 +1,240 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.events.ShareLikeChangedEvent;
+import com.tpl.tupalle.repositories.ShareLikeBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind layer for shares.like_count. Likes add their delta to a per-share in-memory counter
+ * instead of updating the shares row, and a flusher applies all pending deltas in one JDBC batch
+ * every few hundred milliseconds, so a viral share no longer serializes every like on its row lock.
+ * Reads add {@link #pending(UUID)} to the persisted value, and every flush drops the flushed shares
+ * from the share cache on all nodes. The same flush adds the trending weight of new likes, which
+ * would otherwise take the row lock inside every like transaction, and each owner's summed delta
+ * to users.total_likes, one update of the owner's row per flush instead of one per like.
+ * share_likes stays the source of truth and a reconciliation job corrects counts that drifted
+ * from it.
+ */
+@Service
+@Slf4j
+public class LikeCounterService {
+
+    private static final String RECONCILE_LOCK = "tupalle:likes:reconcile";
+    // Covers the walk over all shares plus the settle delay, so one node reconciles per run
+    private static final Duration RECONCILE_LOCK_TTL = Duration.ofMinutes(30);
+    private static final int RECONCILE_CHUNK_SIZE = 500;
+
+    // ConcurrentHashMap bins act as the stripes; merge/remove are atomic per share
+    private final ConcurrentHashMap<UUID, Long> pending = new ConcurrentHashMap<>();
+    // Committed likes (not unlikes) whose trending weight is not yet applied
+    private final ConcurrentHashMap<UUID, Long> pendingTrending = new ConcurrentHashMap<>();
+    // Like deltas per share owner, not yet added to users.total_likes
+    private final ConcurrentHashMap<Long, Long> pendingOwners = new ConcurrentHashMap<>();
+    private final ShareLikeBatchRepository batchRepository;
+    private final TrendingService trendingService;
+    private final UserService userService;
+    private final ShareCache shareCache;
+    private final StringRedisTemplate redis;
+    private final TaskScheduler scheduler;
+    private final TransactionTemplate tx;
+    private final Duration settleDelay;
+    private final long flushIntervalMs;
+    // Own thread, so long jobs on the shared task scheduler never hold up the flush
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-counter-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LikeCounterService(ShareLikeBatchRepository batchRepository, TrendingService trendingService,
+                              UserService userService, ShareCache shareCache, StringRedisTemplate redis,
+                              TaskScheduler scheduler, PlatformTransactionManager transactionManager,
+                              @Value("${app.likes.reconcile-settle:5s}") Duration settleDelay,
+                              @Value("${app.likes.flush-interval-ms:250}") long flushIntervalMs) {
+        this.batchRepository = batchRepository;
+        this.trendingService = trendingService;
+        this.userService = userService;
+        this.shareCache = shareCache;
+        this.redis = redis;
+        this.scheduler = scheduler;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.settleDelay = settleDelay;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    void startFlusher() {
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // An exception would cancel the periodic task
+                log.warn("Like counter flush failed: {}", e.getMessage());
+            }
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(UUID shareId, long delta) {
+        pending.merge(shareId, delta, Long::sum);
+    }
+
+    // Only committed likes count; the share_likes row is already durable at this point
+    @TransactionalEventListener
+    public void onLikeChanged(ShareLikeChangedEvent event) {
+        add(event.shareId(), event.delta());
+        if (event.delta() > 0) {
+            pendingTrending.merge(event.shareId(), event.delta(), Long::sum);
+        }
+        if (event.ownerId() != null) {
+            pendingOwners.merge(event.ownerId(), (long) event.delta(), Long::sum);
+        }
+    }
+
+    // Delta accepted on this node but not yet written to shares.like_count
+    public long pending(UUID shareId) {
+        return pending.getOrDefault(shareId, 0L);
+    }
+
+    public long effectiveLikeCount(UUID shareId, long persisted) {
+        return Math.max(0, persisted + pending(shareId));
+    }
+
+    /**
+     * Writes all pending deltas in one transaction, so a failed statement rolls the whole batch back
+     * and it is simply retried next time. Deltas stay in {@link #pending(UUID)} until the batch has
+     * committed and are then subtracted, keeping likes that arrived meanwhile; reads never see a
+     * count without a committed like, only briefly one counted twice.
+     */
+    public synchronized void flush() {
+        Map<UUID, Long> batch = snapshot(pending);
+        Map<UUID, Long> trendingBatch = snapshot(pendingTrending);
+        Map<Long, Long> ownerBatch = snapshot(pendingOwners);
+        if (batch.isEmpty() && trendingBatch.isEmpty() && ownerBatch.isEmpty()) {
+            return;
+        }
+
+        try {
+            tx.executeWithoutResult(status -> {
+                if (!batch.isEmpty()) {
+                    batchRepository.addToLikeCounts(batch);
+                }
+                if (!trendingBatch.isEmpty()) {
+                    trendingService.addLikeWeights(trendingBatch);
+                }
+                if (!ownerBatch.isEmpty()) {
+                    userService.addToTotalLikes(ownerBatch);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} like counters, will retry: {}", batch.size(), e.getMessage());
+            return;
+        }
+        subtract(pending, batch);
+        subtract(pendingTrending, trendingBatch);
+        subtract(pendingOwners, ownerBatch);
+        // Cached snapshots hold the count from before the flush, which no longer has the delta on top
+        shareCache.invalidate(batch.keySet());
+    }
+
+    private static <K> Map<K, Long> snapshot(ConcurrentHashMap<K, Long> counters) {
+        Map<K, Long> batch = new HashMap<>();
+        counters.forEach((key, delta) -> {
+            if (delta != 0) {
+                batch.put(key, delta);
+            } else {
+                counters.remove(key, 0L);
+            }
+        });
+        return batch;
+    }
+
+    private static <K> void subtract(ConcurrentHashMap<K, Long> counters, Map<K, Long> flushed) {
+        flushed.forEach((key, delta) -> counters.compute(key, (k, current) -> {
+            long rest = (current == null ? 0 : current) - delta;
+            return rest == 0 ? null : rest;
+        }));
+    }
+
+    /**
+     * Corrects like_count where it differs from share_likes. A committed like whose delta is still
+     * pending on some node shows up as a difference too, so a share is only corrected when the same
+     * difference is still there after the settle delay (every healthy node has flushed by then), and
+     * the correction is added as a delta so flushes landing in between are kept. Shares are walked
+     * by id in chunks, each a short indexed query. One node reconciles at a time.
+     */
+    @Scheduled(cron = "${app.likes.reconcile-cron:0 0 4 * * *}")
+    public void reconcile() {
+        flush();
+        if (!Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(RECONCILE_LOCK, "1", RECONCILE_LOCK_TTL))) {
+            return;
+        }
+        try {
+            Map<UUID, Long> observed = new HashMap<>();
+            UUID after = new UUID(0, 0);
+            List<Map.Entry<UUID, Long>> chunk;
+            do {
+                chunk = batchRepository.findLikeCountDriftAfter(after, RECONCILE_CHUNK_SIZE);
+                chunk.stream().filter(row -> row.getValue() != 0).forEach(row -> observed.put(row.getKey(), row.getValue()));
+                if (!chunk.isEmpty()) {
+                    after = chunk.get(chunk.size() - 1).getKey();
+                }
+            } while (chunk.size() == RECONCILE_CHUNK_SIZE);
+            if (!observed.isEmpty()) {
+                scheduler.schedule(() -> correct(observed), Instant.now().plus(settleDelay));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Like count reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private void correct(Map<UUID, Long> observed) {
+        try {
+            flush();
+            Map<UUID, Long> corrections = new HashMap<>();
+            List<UUID> ids = List.copyOf(observed.keySet());
+            for (int i = 0; i < ids.size(); i += RECONCILE_CHUNK_SIZE) {
+                batchRepository.findLikeCountDrift(ids.subList(i, Math.min(i + RECONCILE_CHUNK_SIZE, ids.size())))
+                        .forEach((shareId, drift) -> {
+                            if (drift.equals(observed.get(shareId))) {
+                                corrections.put(shareId, drift);
+                            }
+                        });
+            }
+            if (!corrections.isEmpty()) {
+                tx.executeWithoutResult(status -> batchRepository.addToLikeCounts(corrections));
+                shareCache.invalidate(corrections.keySet());
+                log.info("Reconciled like counts of {} shares", corrections.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Like count reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+}
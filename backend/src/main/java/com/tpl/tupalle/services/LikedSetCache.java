@@ -0,0 +1,236 @@
+package com.tpl.tupalle.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tpl.tupalle.events.ShareLikeChangedEvent;
+import com.tpl.tupalle.repositories.ShareLikeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-user Bloom filter of liked share ids, loaded lazily from share_likes and kept in a
+ * size-bounded Caffeine cache. A negative answer is definitive and costs no I/O; positives are
+ * verified against the database in one IN (...) query. Likes are added after commit and broadcast
+ * on a Redis channel so other nodes never answer a fresh like negatively. Unlikes cannot be removed
+ * from a Bloom filter, so they only count towards a rebuild threshold.
+ */
+@Component
+@Slf4j
+public class LikedSetCache implements MessageListener {
+
+    public static final String CHANGES_CHANNEL = "tupalle:liked-sets:changed";
+
+    private final ShareLikeRepository likeRepo;
+    private final StringRedisTemplate redis;
+    private final Cache<Long, LikedSet> cache;
+    // Likes applied while the user's filter was being loaded, merged once the entry is installed
+    private final ConcurrentHashMap<Long, Set<UUID>> likedDuringLoad = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final double falsePositiveRate;
+
+    private final Counter negatives;
+    private final Counter truePositives;
+    private final Counter falsePositives;
+
+    public LikedSetCache(ShareLikeRepository likeRepo, StringRedisTemplate redis, MeterRegistry meterRegistry,
+                         @Value("${app.cache.liked-sets.max-bytes:16777216}") long maxBytes,
+                         @Value("${app.cache.liked-sets.expire-after-access:30m}") Duration expireAfterAccess,
+                         @Value("${app.cache.liked-sets.max-entries:50000}") int maxEntries,
+                         @Value("${app.cache.liked-sets.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.likeRepo = likeRepo;
+        this.redis = redis;
+        this.maxEntries = maxEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long userId, LikedSet set) -> set.sizeInBytes())
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "liked-sets");
+
+        this.negatives = Counter.builder("likes.filter.checks").tag("result", "negative")
+                .description("Liked checks answered by the Bloom filter without I/O").register(meterRegistry);
+        this.truePositives = Counter.builder("likes.filter.checks").tag("result", "true-positive")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("likes.filter.checks").tag("result", "false-positive")
+                .register(meterRegistry);
+        Gauge.builder("likes.filter.hit.ratio", this, LikedSetCache::hitRatio)
+                .description("Share of liked checks answered without touching share_likes").register(meterRegistry);
+        Gauge.builder("likes.filter.false.positive.rate", this, LikedSetCache::falsePositiveRate)
+                .description("Share of filter positives that the database rejected").register(meterRegistry);
+    }
+
+    /**
+     * Subset of shareIds the user has liked.
+     */
+    public Set<UUID> likedAmong(Long userId, Collection<UUID> shareIds) {
+        if (shareIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        LikedSet set = filterFor(userId);
+        List<UUID> candidates = shareIds.stream().filter(set::mightContain).toList();
+        negatives.increment(shareIds.size() - candidates.size());
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<UUID> liked = likeRepo.findLikedShareIds(userId, candidates);
+        truePositives.increment(liked.size());
+        falsePositives.increment(candidates.size() - liked.size());
+        return liked;
+    }
+
+    public boolean hasLiked(Long userId, UUID shareId) {
+        return !likedAmong(userId, List.of(shareId)).isEmpty();
+    }
+
+    @TransactionalEventListener
+    public void onLikeChanged(ShareLikeChangedEvent event) {
+        apply(event.userId(), event.shareId(), event.delta());
+        try {
+            redis.convertAndSend(CHANGES_CHANNEL, event.userId() + ":" + event.shareId() + ":" + event.delta());
+        } catch (RuntimeException e) {
+            // Other nodes may answer this like negatively until their entry expires
+            log.warn("Failed to broadcast liked-set change for user {}: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    // Broadcast from any node; applying our own change twice only adds an already-present id
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":");
+        try {
+            apply(Long.parseLong(parts[0]), UUID.fromString(parts[1]), Integer.parseInt(parts[2]));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed liked-set change message");
+        }
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Caffeine installs a loaded entry only after load returns, and computeIfPresent skips a key whose
+     * load is still running, so a like committed after load read share_likes would be missing from the
+     * filter for as long as the entry lives. Such likes are collected while the load is registered and
+     * applied here, once the entry is visible to {@link #apply}.
+     */
+    private LikedSet filterFor(Long userId) {
+        LikedSet set = cache.get(userId, this::load);
+        Set<UUID> late = set.takeLikedDuringLoad();
+        if (late != null && likedDuringLoad.remove(userId, late)) {
+            late.forEach(shareId -> apply(userId, shareId, 1));
+        }
+        return set;
+    }
+
+    // Records a like for a running load before touching the cache, so it is never missed by both
+    private void apply(Long userId, UUID shareId, int delta) {
+        if (delta > 0) {
+            likedDuringLoad.computeIfPresent(userId, (id, shareIds) -> {
+                shareIds.add(shareId);
+                return shareIds;
+            });
+        }
+        cache.asMap().computeIfPresent(userId, (id, set) -> {
+            if (delta > 0) {
+                return set.add(shareId) ? set : null;
+            }
+            return set.remove() ? set : null;
+        });
+    }
+
+    private LikedSet load(Long userId) {
+        Set<UUID> late = ConcurrentHashMap.newKeySet();
+        likedDuringLoad.put(userId, late);
+        List<UUID> liked;
+        try {
+            liked = likeRepo.findShareIdsByUserId(userId, Limit.of(maxEntries + 1));
+        } catch (RuntimeException e) {
+            likedDuringLoad.remove(userId, late);
+            throw e;
+        }
+        if (liked.size() > maxEntries) {
+            // Too large to filter usefully; every check goes to the database
+            likedDuringLoad.remove(userId, late);
+            return LikedSet.UNFILTERED;
+        }
+        return new LikedSet(ShareIdBloomFilter.of(liked, 64, falsePositiveRate), liked.size(), late);
+    }
+
+    private double hitRatio() {
+        double total = negatives.count() + truePositives.count() + falsePositives.count();
+        return total == 0 ? 0 : negatives.count() / total;
+    }
+
+    private double falsePositiveRate() {
+        double positives = truePositives.count() + falsePositives.count();
+        return positives == 0 ? 0 : falsePositives.count() / positives;
+    }
+
+    private static final class LikedSet {
+
+        static final LikedSet UNFILTERED = new LikedSet(null, 0, null);
+
+        private final ShareIdBloomFilter filter;
+        private final AtomicInteger size;
+        private final AtomicInteger removed = new AtomicInteger();
+        private final AtomicReference<Set<UUID>> likedDuringLoad;
+
+        LikedSet(ShareIdBloomFilter filter, int size, Set<UUID> likedDuringLoad) {
+            this.filter = filter;
+            this.size = new AtomicInteger(size);
+            this.likedDuringLoad = new AtomicReference<>(likedDuringLoad);
+        }
+
+        // Handed out once, to the first caller that sees this entry
+        Set<UUID> takeLikedDuringLoad() {
+            return likedDuringLoad.getAndSet(null);
+        }
+
+        boolean mightContain(UUID shareId) {
+            return filter == null || filter.mightContain(shareId);
+        }
+
+        // False once the filter is past its sized capacity; the caller then drops it for a lazy rebuild
+        boolean add(UUID shareId) {
+            if (filter == null) {
+                return true;
+            }
+            filter.put(shareId);
+            return size.incrementAndGet() <= filter.capacity();
+        }
+
+        // Unliked ids stay in the filter as false positives; rebuild once they are a quarter of it
+        boolean remove() {
+            return filter == null || removed.incrementAndGet() <= Math.max(16, size.get() / 4);
+        }
+
+        int sizeInBytes() {
+            return filter == null ? 64 : filter.sizeInBytes() + 64;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.entity.DTO.ResumableUploadResponse;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.Part;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable image uploads on top of S3 multipart upload. Each part request is streamed straight
+ * into {@code UploadPart}, so memory per upload is bounded by the SDK buffer, not the file size.
+ * <p>
+ * Session state lives in a Redis hash ({@code tupalle:uploads:<id>}) so any node can take the next
+ * part; it expires after {@code session-ttl} without activity. S3 itself is the record of which
+ * parts have landed. Multipart uploads abandoned without an abort are best expired by a bucket
+ * lifecycle rule (AbortIncompleteMultipartUpload).
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final String SESSION_PREFIX = "tupalle:uploads:";
+    // S3 rejects parts smaller than 5 MiB, except the last one
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final S3Service s3Service;
+    private final StringRedisTemplate redis;
+    private final long partSize;
+    private final Duration sessionTtl;
+
+    private record Session(String id, Long userId, String key, String uploadId, String contentType,
+                           long size, long partSize, boolean completed) {
+
+        int partCount() {
+            return (int) ((size + partSize - 1) / partSize);
+        }
+
+        long partLength(int partNumber) {
+            return partNumber < partCount() ? partSize : size - partSize * (partCount() - 1);
+        }
+    }
+
+    public ResumableUploadService(S3Service s3Service, StringRedisTemplate redis,
+                                  @Value("${app.images.resumable.part-size:5242880}") long partSize,
+                                  @Value("${app.images.resumable.session-ttl:24h}") Duration sessionTtl) {
+        this.s3Service = s3Service;
+        this.redis = redis;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.sessionTtl = sessionTtl;
+    }
+
+    public ResumableUploadResponse start(Long userId, String contentType, long size) {
+        if (size <= 0 || size > s3Service.maxResumableBytes()) {
+            throw new IllegalArgumentException("Image must be at most " + s3Service.maxResumableBytes() + " bytes");
+        }
+        String key = s3Service.newUploadKey(userId, contentType);
+        String uploadId = s3Service.createMultipartUpload(key, contentType);
+
+        Session session = new Session(UUID.randomUUID().toString(), userId, key, uploadId, contentType,
+                size, partSize, false);
+        save(session);
+        return toResponse(session, List.of());
+    }
+
+    public ResumableUploadResponse status(Long userId, String id) {
+        Session session = load(userId, id);
+        List<Part> parts = session.completed() ? List.of() : s3Service.listParts(session.key(), session.uploadId());
+        return toResponse(session, parts);
+    }
+
+    /**
+     * Uploads (or re-uploads) one part. The length must match the part's slot exactly, so a
+     * truncated body after a dropped connection is refused instead of stored.
+     */
+    public ResumableUploadResponse.Part uploadPart(Long userId, String id, int partNumber, InputStream in,
+                                                   long length) {
+        Session session = load(userId, id);
+        if (session.completed()) {
+            throw new IllegalStateException("Upload is already completed");
+        }
+        if (partNumber < 1 || partNumber > session.partCount()) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + session.partCount());
+        }
+        long expected = session.partLength(partNumber);
+        if (length != expected) {
+            throw new IllegalArgumentException("Part " + partNumber + " must be " + expected + " bytes");
+        }
+        s3Service.uploadPart(session.key(), session.uploadId(), partNumber, in, length);
+        redis.expire(SESSION_PREFIX + id, sessionTtl);
+        return new ResumableUploadResponse.Part(partNumber, length);
+    }
+
+    /**
+     * Assembles the object once every part has landed. Safe to repeat: a completed upload just
+     * returns its key again.
+     * @return the object key
+     */
+    public String complete(Long userId, String id) {
+        Session session = load(userId, id);
+        if (session.completed()) {
+            return session.key();
+        }
+
+        Map<Integer, Part> landed = new HashMap<>();
+        for (Part part : s3Service.listParts(session.key(), session.uploadId())) {
+            landed.put(part.partNumber(), part);
+        }
+        List<Integer> missing = new ArrayList<>();
+        List<CompletedPart> parts = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= session.partCount(); partNumber++) {
+            Part part = landed.get(partNumber);
+            if (part == null || part.size() != session.partLength(partNumber)) {
+                missing.add(partNumber);
+            } else {
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(part.eTag()).build());
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing parts: " + missing);
+        }
+
+        s3Service.completeMultipartUpload(session.key(), session.uploadId(), parts);
+        redis.opsForHash().put(SESSION_PREFIX + id, "completed", "true");
+        return session.key();
+    }
+
+    public void abort(Long userId, String id) {
+        Session session = load(userId, id);
+        if (!session.completed()) {
+            s3Service.abortMultipartUpload(session.key(), session.uploadId());
+        }
+        redis.delete(SESSION_PREFIX + id);
+    }
+
+    private void save(Session session) {
+        String redisKey = SESSION_PREFIX + session.id();
+        redis.opsForHash().putAll(redisKey, Map.of(
+                "userId", session.userId().toString(),
+                "key", session.key(),
+                "uploadId", session.uploadId(),
+                "contentType", session.contentType(),
+                "size", Long.toString(session.size()),
+                "partSize", Long.toString(session.partSize()),
+                "completed", Boolean.toString(session.completed())));
+        redis.expire(redisKey, sessionTtl);
+    }
+
+    // Unknown, expired and other users' uploads all look the same to the caller
+    private Session load(Long userId, String id) {
+        Map<Object, Object> fields = redis.opsForHash().entries(SESSION_PREFIX + id);
+        if (fields.isEmpty() || !userId.toString().equals(fields.get("userId"))) {
+            throw new EntityNotFoundException("Upload not found");
+        }
+        return new Session(id, userId,
+                (String) fields.get("key"),
+                (String) fields.get("uploadId"),
+                (String) fields.get("contentType"),
+                Long.parseLong((String) fields.get("size")),
+                Long.parseLong((String) fields.get("partSize")),
+                Boolean.parseBoolean((String) fields.get("completed")));
+    }
+
+    private static ResumableUploadResponse toResponse(Session session, List<Part> parts) {
+        List<ResumableUploadResponse.Part> uploaded = parts.stream()
+                .sorted(Comparator.comparing(Part::partNumber))
+                .map(part -> new ResumableUploadResponse.Part(part.partNumber(), part.size()))
+                .toList();
+        return new ResumableUploadResponse(session.id(), session.key(), session.size(), session.partSize(),
+                session.partCount(), uploaded, session.completed());
+    }
+}
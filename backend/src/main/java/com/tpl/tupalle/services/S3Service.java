@@ -1,24 +1,73 @@
 package com.tpl.tupalle.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tpl.tupalle.entity.DTO.UploadIntentResponse;
+import com.tpl.tupalle.events.ImageUploadedEvent;
+import com.tpl.tupalle.repositories.ImageAssetRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 public class S3Service {
 
+    // Direct uploads land under uploads/<userId>/ so a share can only claim its owner's objects
+    private static final String UPLOAD_PREFIX = "uploads/";
+    // Server-side uploads are named by their SHA-256, so identical files share one object
+    private static final String CONTENT_PREFIX = "images/sha256/";
+    // Originals uploaded through the server, current (content-addressed) and legacy
+    private static final String MANAGED_IMAGE_PREFIX = "images/";
+    private static final Map<String, String> UPLOAD_EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp");
+
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
@@ -30,50 +79,451 @@ public class S3Service {
 
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final Duration urlTtl;
+    private final Duration uploadTtl;
+    private final long maxUploadBytes;
+    private final long maxResumableBytes;
+    private final S3AsyncClient s3AsyncClient;
+    // Caps in-flight uploads across all requests
+    private final Semaphore uploadPermits;
+    private final Duration uploadTimeout;
+    // Feeds multipart streams into the async client
+    private final ExecutorService uploadStreams;
+    private final ApplicationEventPublisher events;
+    private final ImageAssetRepository assets;
+    private final TransactionTemplate tx;
+    // Object key -> presigned GET URL, reused for half of the signature lifetime
+    private final Cache<String, String> signedUrls;
 
-    public S3Service(S3Client s3Client, S3Presigner s3Presigner) {
+    public S3Service(S3Client s3Client, S3AsyncClient s3AsyncClient, S3Presigner s3Presigner,
+                     MeterRegistry meterRegistry, ApplicationEventPublisher events,
+                     ImageAssetRepository assets, PlatformTransactionManager transactionManager,
+                     @Value("${app.images.url-ttl:12h}") Duration urlTtl,
+                     @Value("${app.images.signed-url-cache-size:100000}") long cacheSize,
+                     @Value("${app.images.upload-url-ttl:10m}") Duration uploadTtl,
+                     @Value("${app.images.max-upload-bytes:10485760}") long maxUploadBytes,
+                     @Value("${app.images.upload-concurrency:16}") int uploadConcurrency,
+                     @Value("${app.images.upload-timeout:30s}") Duration uploadTimeout,
+                     @Value("${app.images.resumable.max-bytes:52428800}") long maxResumableBytes) {
         this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.events = events;
+        this.assets = assets;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.uploadPermits = new Semaphore(uploadConcurrency);
+        this.uploadTimeout = uploadTimeout;
+        this.uploadStreams = Executors.newFixedThreadPool(uploadConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
         this.s3Presigner = s3Presigner;
+        this.urlTtl = urlTtl;
+        this.uploadTtl = uploadTtl;
+        this.maxUploadBytes = maxUploadBytes;
+        this.maxResumableBytes = maxResumableBytes;
+        this.signedUrls = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(urlTtl.dividedBy(2))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, signedUrls, "signed-image-urls");
     }
 
     public String uploadImage(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
+        return uploadImages(List.of(file)).get(0);
+    }
+
+    /**
+     * Uploads all files concurrently on the async client, so latency follows the slowest image.
+     * In-flight uploads are capped across requests and each one has its own timeout. If any upload
+     * fails, the objects this call created are deleted again and an IOException is thrown.
+     * <p>
+     * Keys are content-addressed ({@code images/sha256/<hex><ext>}): a file whose bytes are already
+     * in the bucket is not sent again.
+     * @return object keys, in file order
+     */
+    public List<String> uploadImages(List<MultipartFile> files) throws IOException {
+        // Reject bad files before anything is sent
+        files.forEach(S3Service::checkImage);
+
+        List<CompletableFuture<StoredImage>> uploads = new ArrayList<>();
+        Throwable failure = null;
+        for (MultipartFile file : files) {
+            try {
+                uploads.add(startUpload(file));
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+                break;
+            }
+        }
 
+        List<StoredImage> stored = new ArrayList<>();
+        for (CompletableFuture<StoredImage> upload : uploads) {
+            try {
+                stored.add(upload.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            // Deduplicated keys may belong to other shares, so only objects written here are removed
+            stored.stream().filter(StoredImage::created).map(StoredImage::key).forEach(this::deleteImageAsync);
+            throw new IOException("Image upload failed: " + failure.getMessage(), failure);
+        }
+        List<String> keys = stored.stream().map(StoredImage::key).toList();
+        keys.forEach(key -> events.publishEvent(new ImageUploadedEvent(key)));
+        return keys;
+    }
+
+    private record StoredImage(String key, boolean created) {}
+
+    private static void checkImage(MultipartFile file) {
         // Validate file type
         String contentType = file.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) {
             throw new IllegalArgumentException("File must be an image");
         }
+    }
 
-        // Generate unique filename
+    private static String extensionOf(MultipartFile file) {
+        String extension = UPLOAD_EXTENSIONS.get(file.getContentType());
+        if (extension != null) {
+            return extension;
+        }
         String originalFilename = file.getOriginalFilename();
-        String extension = "";
         if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            return originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+        }
+        return "";
+    }
+
+    /**
+     * Hashes the file (already buffered locally by the multipart resolver), skips the PUT when the
+     * content key exists and otherwise uploads with the SHA-256 so S3 verifies what it stores.
+     * <p>
+     * The existing object is only reused when its asset row could be touched first: that restarts the
+     * orphan grace period, so ImageAssetCleanup cannot delete it before the share is saved. Without a
+     * row (never registered, or just collected) the bytes are sent again.
+     */
+    private CompletableFuture<StoredImage> startUpload(MultipartFile file) throws IOException {
+        try {
+            if (!uploadPermits.tryAcquire(uploadTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IOException("Too many image uploads in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to upload", e);
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> sha256(file), uploadStreams)
+                    .thenCompose(digest -> {
+                        String key = CONTENT_PREFIX + HexFormat.of().formatHex(digest) + extensionOf(file);
+                        CompletableFuture<Boolean> reusable = touched(key)
+                                ? exists(key)
+                                : CompletableFuture.completedFuture(false);
+                        return reusable.thenCompose(exists -> exists
+                                ? CompletableFuture.completedFuture(new StoredImage(key, false))
+                                : put(file, key, digest).thenApply(created -> new StoredImage(key, true)));
+                    })
+                    .whenComplete((stored, error) -> uploadPermits.release());
+        } catch (RuntimeException e) {
+            uploadPermits.release();
+            throw e;
+        }
+    }
+
+    private static byte[] sha256(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Blocking JDBC on the upload-streams thread that just hashed the file
+    private boolean touched(String key) {
+        Integer touched = tx.execute(status -> assets.touch(key));
+        return touched != null && touched > 0;
+    }
+
+    private CompletableFuture<Boolean> exists(String key) {
+        return s3AsyncClient.headObject(builder -> builder
+                        .bucket(bucketName)
+                        .key(key)
+                        .overrideConfiguration(c -> c.apiCallTimeout(uploadTimeout)))
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return true;
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof S3Exception s3Error && s3Error.statusCode() == 404) {
+                        return false;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    private CompletableFuture<?> put(MultipartFile file, String key, byte[] digest) {
+        InputStream body;
+        try {
+            body = file.getInputStream();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        
-        String filename = "images/" + UUID.randomUUID().toString() + extension;
-        
-        // Upload to S3
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
-                .key(filename)
+                .key(key)
+                .contentType(file.getContentType())
+                .checksumSHA256(Base64.getEncoder().encodeToString(digest))
+                // Same bytes always live under the same key
+                .cacheControl("public, max-age=31536000, immutable")
+                .overrideConfiguration(c -> c.apiCallTimeout(uploadTimeout))
+                .build();
+        return s3AsyncClient.putObject(putObjectRequest,
+                        AsyncRequestBody.fromInputStream(body, file.getSize(), uploadStreams))
+                .whenComplete((response, error) -> closeQuietly(body));
+    }
+
+    private void deleteImageAsync(String key) {
+        s3AsyncClient.deleteObject(builder -> builder.bucket(bucketName).key(key))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to delete orphaned upload {}: {}", key, error.getMessage());
+                    }
+                });
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // Multipart temp files are cleaned up by the container anyway
+        }
+    }
+
+    @PreDestroy
+    public void shutdownUploads() {
+        uploadStreams.shutdown();
+    }
+
+    /**
+     * Presigned PUT for one browser upload. Content type and length are signed, so S3 itself
+     * rejects anything else; the key is only attached to a share after {@link #confirmUpload}.
+     */
+    public UploadIntentResponse.Intent createUploadIntent(Long userId, String contentType, long size) {
+        if (size <= 0 || size > maxUploadBytes) {
+            throw new IllegalArgumentException("Image must be at most " + maxUploadBytes + " bytes");
+        }
+
+        String key = newUploadKey(userId, contentType);
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
                 .contentType(contentType)
+                .contentLength(size)
                 .build();
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(uploadTtl)
+                .putObjectRequest(putObjectRequest)
+                .build());
 
-        PutObjectResponse response = s3Client.putObject(putObjectRequest, 
-                RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+        // Browsers set Host themselves and refuse to send it explicitly
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!name.equalsIgnoreCase("host")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new UploadIntentResponse.Intent(key, "PUT", presigned.url().toString(), headers,
+                presigned.expiration());
+    }
 
-        // Generate presigned URL for private bucket access
-        return generatePresignedUrl(filename);
+    /**
+     * Fresh key under the user's direct-upload prefix; confirmed like a presigned PUT once used.
+     */
+    public String newUploadKey(Long userId, String contentType) {
+        String extension = UPLOAD_EXTENSIONS.get(contentType);
+        if (extension == null) {
+            throw new IllegalArgumentException("Unsupported image type: " + contentType);
+        }
+        return UPLOAD_PREFIX + userId + "/" + UUID.randomUUID() + extension;
     }
 
-    public void deleteImage(String imageUrl) {
+    public long maxResumableBytes() {
+        return maxResumableBytes;
+    }
+
+    public String createMultipartUpload(String key, String contentType) {
+        return s3Client.createMultipartUpload(builder -> builder
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType))
+                .uploadId();
+    }
+
+    /**
+     * Streams one part straight from the given stream to S3; nothing beyond the SDK's small
+     * retry buffer is held in memory.
+     * @return the part's ETag
+     */
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream in, long length) {
+        return s3Client.uploadPart(builder -> builder
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength(length),
+                        RequestBody.fromInputStream(in, length))
+                .eTag();
+    }
+
+    public List<Part> listParts(String key, String uploadId) {
+        List<Part> parts = new ArrayList<>();
+        s3Client.listPartsPaginator(builder -> builder.bucket(bucketName).key(key).uploadId(uploadId))
+                .parts()
+                .forEach(parts::add);
+        return parts;
+    }
+
+    public void completeMultipartUpload(String key, String uploadId, List<CompletedPart> parts) {
+        s3Client.completeMultipartUpload(builder -> builder
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(upload -> upload.parts(parts)));
+    }
+
+    public void abortMultipartUpload(String key, String uploadId) {
+        s3Client.abortMultipartUpload(builder -> builder.bucket(bucketName).key(key).uploadId(uploadId));
+    }
+
+    /**
+     * Whether a reference is a direct upload that still has to be confirmed before it is stored.
+     */
+    public boolean isDirectUpload(String imageRef) {
+        String key = toKey(imageRef);
+        return key != null && key.startsWith(UPLOAD_PREFIX);
+    }
+
+    /**
+     * Whether a key names a server-side upload stored under its content hash.
+     */
+    public boolean isContentKey(String key) {
+        return key.startsWith(CONTENT_PREFIX);
+    }
+
+    /**
+     * Whether a key lies under a prefix this application writes originals to (server-side and
+     * direct uploads, including legacy {@code images/<uuid>} keys); variants and foreign objects do not.
+     */
+    public boolean isManagedKey(String key) {
+        return key.startsWith(MANAGED_IMAGE_PREFIX) || key.startsWith(UPLOAD_PREFIX);
+    }
+
+    /**
+     * Checks that a direct upload belongs to the user and actually reached the bucket with an
+     * acceptable type and size (one HEAD request).
+     */
+    public void confirmUpload(Long userId, String key) {
+        if (!key.startsWith(UPLOAD_PREFIX + userId + "/")) {
+            throw new IllegalArgumentException("Image was not uploaded by this user: " + key);
+        }
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(builder -> builder.bucket(bucketName).key(key));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new IllegalArgumentException("Image upload not found: " + key);
+            }
+            throw e;
+        }
+        long maxBytes = Math.max(maxUploadBytes, maxResumableBytes);
+        if (!UPLOAD_EXTENSIONS.containsKey(head.contentType()) || head.contentLength() > maxBytes) {
+            deleteImage(key);
+            throw new IllegalArgumentException("Uploaded image was rejected: " + key);
+        }
+        events.publishEvent(new ImageUploadedEvent(key));
+    }
+
+    public InputStream openObject(String key) {
+        return s3Client.getObject(builder -> builder.bucket(bucketName).key(key));
+    }
+
+    // Derived objects never change under their key, so browsers and CDNs may keep them for good
+    public void putImmutableJpeg(String key, byte[] data) {
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType("image/jpeg")
+                        .cacheControl("public, max-age=31536000, immutable")
+                        .build(),
+                RequestBody.fromBytes(data));
+    }
+
+    /**
+     * Browser-usable URL for a stored image reference: bucket keys (and legacy presigned URLs of
+     * this bucket) are signed through the cache, external URLs are returned unchanged.
+     */
+    public String signedUrl(String imageRef) {
+        String key = toKey(imageRef);
+        if (key == null) {
+            return imageRef;
+        }
+        return signedUrls.get(key, this::generatePresignedUrl);
+    }
+
+    public List<String> signedUrls(List<String> imageRefs) {
+        return imageRefs.stream().map(this::signedUrl).toList();
+    }
+
+    /**
+     * What to persist for an image reference sent by a client: the object key when it points into
+     * our bucket, otherwise the reference as given.
+     */
+    public String toStorageRef(String imageRef) {
+        String key = toKey(imageRef);
+        return key != null ? key : imageRef;
+    }
+
+    // Object key for a bucket key or a URL into the bucket; null for external URLs
+    public String toKey(String imageRef) {
+        if (imageRef == null || imageRef.isEmpty()) {
+            return null;
+        }
+        if (!imageRef.startsWith("http://") && !imageRef.startsWith("https://")) {
+            return imageRef;
+        }
+        return extractKeyFromUrl(imageRef);
+    }
+
+    /**
+     * Changes every half URL lifetime. Any URL handed out is valid for at least that long, so
+     * response ETags that include this value never let a client keep an expired URL.
+     */
+    public long signingEpoch() {
+        return System.currentTimeMillis() / urlTtl.dividedBy(2).toMillis();
+    }
+
+    public void deleteImage(String imageRef) {
         try {
-            // Extract the key from the URL
-            String key = extractKeyFromUrl(imageUrl);
+            String key = toKey(imageRef);
             if (key != null) {
                 s3Client.deleteObject(builder -> builder
                         .bucket(bucketName)
@@ -90,6 +540,11 @@ public class S3Service {
         if (imageUrl == null || imageUrl.isEmpty()) {
             return null;
         }
+        // Presigned URLs carry the signature in the query string
+        int query = imageUrl.indexOf('?');
+        if (query >= 0) {
+            imageUrl = imageUrl.substring(0, query);
+        }
 
         // Handle both standard AWS S3 URLs and custom endpoint URLs
         if (imageUrl.contains(bucketName + ".s3.")) {
@@ -108,7 +563,7 @@ public class S3Service {
     /**
      * Generate a presigned URL for accessing a private S3 object
      * @param key The S3 object key
-     * @return Presigned URL valid for 7 days
+     * @return Presigned URL valid for app.images.url-ttl
      */
     public String generatePresignedUrl(String key) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
@@ -117,7 +572,7 @@ public class S3Service {
                 .build();
 
         GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofDays(7)) // URL valid for 7 days
+                .signatureDuration(urlTtl)
                 .getObjectRequest(getObjectRequest)
                 .build();
 
@@ -131,10 +586,10 @@ public class S3Service {
      * @return New presigned URL
      */
     public String refreshPresignedUrl(String imageUrl) {
-        String key = extractKeyFromUrl(imageUrl);
+        String key = toKey(imageUrl);
         if (key == null) {
             throw new IllegalArgumentException("Invalid image URL: " + imageUrl);
         }
-        return generatePresignedUrl(key);
+        return signedUrl(key);
     }
 }
@@ -0,0 +1,120 @@
+package com.tpl.tupalle.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of search result pages, keyed by the normalized query, filters and page. Only
+ * the ordered share ids are kept; callers hydrate them. Entries expire after a few seconds (5s by
+ * default) and are dropped as soon as the index applies a change to a share they contain or that
+ * could now match.
+ */
+@Component
+public class SearchResultCache {
+
+    public record Key(String query, String language, Long ownerId, int page, int size, boolean withTotal) {
+        Pageable pageable() {
+            return PageRequest.of(page, size);
+        }
+    }
+
+    /**
+     * Indexed state of a changed share; ownerId is null when the share no longer exists.
+     */
+    record Change(UUID shareId, Long ownerId, Set<String> languages, String text) {}
+
+    // total is -1 for Slice results
+    private record Entry(List<UUID> ids, boolean hasNext, long total) {}
+
+    private final Cache<Key, Entry> cache;
+    // Bumped by every invalidation; a result loaded across a bump may predate the change and is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${app.cache.search.max-queries:10000}") long maxQueries,
+                             @Value("${app.cache.search.ttl:5s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxQueries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search-results");
+    }
+
+    public static Key key(String query, String language, Long ownerId, Pageable pageable, boolean withTotal) {
+        return new Key(normalize(query), language == null ? null : normalize(language), ownerId,
+                pageable.getPageNumber(), pageable.getPageSize(), withTotal);
+    }
+
+    // Case-folded and whitespace-collapsed; the analyzer treats these forms identically anyway
+    static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    public Slice<UUID> get(Key key, Function<Key, Slice<UUID>> loader) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            long loadedAt = generation.get();
+            Slice<UUID> slice = loader.apply(key);
+            entry = new Entry(List.copyOf(slice.getContent()), slice.hasNext(),
+                    slice instanceof Page<UUID> page ? page.getTotalElements() : -1);
+            if (generation.get() == loadedAt) {
+                cache.put(key, entry);
+            }
+        }
+        return entry.total() >= 0
+                ? new PageImpl<>(entry.ids(), key.pageable(), entry.total())
+                : new SliceImpl<>(entry.ids(), key.pageable(), entry.hasNext());
+    }
+
+    void invalidate(Change change) {
+        generation.incrementAndGet();
+        cache.asMap().entrySet().removeIf(e -> e.getValue().ids().contains(change.shareId())
+                || (change.ownerId() != null && couldMatch(e.getKey(), change)));
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // Over-approximates the index query: every query word must occur somewhere in the share's text
+    private static boolean couldMatch(Key key, Change change) {
+        if (key.ownerId() != null && !key.ownerId().equals(change.ownerId())) {
+            return false;
+        }
+        if (key.language() != null && !change.languages().contains(key.language())) {
+            return false;
+        }
+        if (key.query() == null) {
+            return true;
+        }
+        String text = change.text().toLowerCase(Locale.ROOT);
+        return Arrays.stream(key.query().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .allMatch(text::contains);
+    }
+}
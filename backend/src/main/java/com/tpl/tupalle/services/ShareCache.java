@@ -0,0 +1,103 @@
+package com.tpl.tupalle.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tpl.tupalle.events.ShareChangedEvent;
+import com.tpl.tupalle.events.ShareLikeChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Size-bounded in-process cache of hydrated shares keyed by id (Caffeine, W-TinyLFU eviction).
+ * Writes and likes invalidate the local entry after commit and broadcast the id on a Redis channel
+ * so every other node behind the load balancer drops its copy too.
+ */
+@Component
+@Slf4j
+public class ShareCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "tupalle:shares:invalidate";
+
+    private final Cache<UUID, ShareSnapshot> cache;
+    private final StringRedisTemplate redis;
+
+    public ShareCache(StringRedisTemplate redis, MeterRegistry meterRegistry,
+                      @Value("${app.cache.shares.max-bytes:67108864}") long maxBytes,
+                      @Value("${app.cache.shares.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.redis = redis;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((UUID id, ShareSnapshot share) -> share.estimatedSize())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        // Exposes cache.gets{result=hit|miss}, cache.evictions, cache.size etc. under cache=shares
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "shares");
+    }
+
+    public ShareSnapshot get(UUID id, Function<UUID, ShareSnapshot> loader) {
+        return cache.get(id, loader);
+    }
+
+    public Optional<ShareSnapshot> getIfPresent(UUID id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    public void invalidate(UUID id) {
+        invalidate(List.of(id));
+    }
+
+    // One broadcast for the whole batch: the message is a comma-separated list of ids
+    public void invalidate(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(ids);
+        try {
+            redis.convertAndSend(INVALIDATION_CHANNEL,
+                    ids.stream().map(UUID::toString).collect(Collectors.joining(",")));
+        } catch (RuntimeException e) {
+            log.warn("Failed to broadcast share cache invalidation for {} shares: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onShareChanged(ShareChangedEvent event) {
+        if (event.type() != ShareChangedEvent.Type.CREATED) {
+            invalidate(event.shareId());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onLikeChanged(ShareLikeChangedEvent event) {
+        invalidate(event.shareId());
+    }
+
+    // Invalidation broadcast from any node (including this one, which is harmless)
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            for (String id : new String(message.getBody(), StandardCharsets.UTF_8).split(",")) {
+                cache.invalidate(UUID.fromString(id));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed share cache invalidation message");
+        }
+    }
+}
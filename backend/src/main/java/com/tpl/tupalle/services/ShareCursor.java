@@ -0,0 +1,43 @@
+package com.tpl.tupalle.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor for the share feeds. Encodes the sort key of the last row
+ * of a page together with its id, so the next page can seek directly past it.
+ * For the recent feed the key is createdAt (epoch micros), for most-liked it is likeCount.
+ */
+public record ShareCursor(long key, UUID id) {
+
+    public static ShareCursor ofCreatedAt(Instant createdAt, UUID id) {
+        long micros = Math.addExact(Math.multiplyExact(createdAt.getEpochSecond(), 1_000_000L),
+                createdAt.getNano() / 1_000);
+        return new ShareCursor(micros, id);
+    }
+
+    public static ShareCursor ofLikeCount(long likeCount, UUID id) {
+        return new ShareCursor(likeCount, id);
+    }
+
+    public Instant createdAt() {
+        return Instant.ofEpochSecond(Math.floorDiv(key, 1_000_000L), Math.floorMod(key, 1_000_000L) * 1_000L);
+    }
+
+    public String encode() {
+        String raw = key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ShareCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new ShareCursor(Long.parseLong(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.tpl.tupalle.services;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over share ids. Sized for an expected number of entries at a target
+ * false-positive rate; adds are thread-safe, removal is not supported (callers rebuild instead).
+ */
+final class ShareIdBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int capacity;
+
+    private ShareIdBloomFilter(int capacity, double falsePositiveRate) {
+        this.capacity = capacity;
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bits = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+        this.bitCount = (long) bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+    }
+
+    static ShareIdBloomFilter of(Collection<UUID> ids, int minCapacity, double falsePositiveRate) {
+        // Headroom for likes added while cached, so the rate holds until the entry expires
+        ShareIdBloomFilter filter = new ShareIdBloomFilter(Math.max(minCapacity, ids.size() * 2), falsePositiveRate);
+        ids.forEach(filter::put);
+        return filter;
+    }
+
+    void put(UUID id) {
+        long h1 = mix(id.getMostSignificantBits());
+        long h2 = mix(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(UUID id) {
+        long h1 = mix(id.getMostSignificantBits());
+        long h2 = mix(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int sizeInBytes() {
+        return bits.length() * 8;
+    }
+
+    // MurmurHash3 fmix64; random UUIDs are already uniform but time-based ones are not
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,337 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.events.ShareChangedEvent;
+import com.tpl.tupalle.events.ShareLikeChangedEvent;
+import com.tpl.tupalle.repositories.ShareRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a Redis sorted set of share id -> like count so the most-liked feed is served with
+ * ZREVRANGE instead of ORDER BY like_count on MySQL. Updated incrementally after each committed
+ * like/unlike, built from the database on startup when missing and corrected by a periodic
+ * reconciliation job. Incremental updates only apply to an existing ranking: if the key is lost at
+ * runtime, reads fall back to the database and trigger a rebuild instead of serving the few members
+ * a ZINCRBY would have recreated it with.
+ */
+@Service
+@Slf4j
+public class ShareRankingService {
+
+    static final String MOST_LIKED_KEY = "tupalle:ranking:most-liked";
+    private static final String REBUILD_LOCK = "tupalle:ranking:rebuild";
+    // Released when a run finishes; the TTL only matters if a node dies holding it
+    private static final Duration REBUILD_LOCK_TTL = Duration.ofMinutes(5);
+    // Every node runs the cron at the same minute; only the first one reconciles
+    private static final String RECONCILED_MARKER = "tupalle:ranking:reconciled";
+    private static final Duration RECONCILED_MARKER_TTL = Duration.ofMinutes(5);
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    // ZINCRBY / ZADD NX that never create the key, so a lost ranking is not recreated half-empty
+    private static final RedisScript<Long> INCREMENT_IF_EXISTS = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('ZINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "return 1 end return 0", Long.class);
+    private static final RedisScript<Long> ADD_IF_EXISTS = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return redis.call('ZADD', KEYS[1], 'NX', ARGV[1], ARGV[2]) " +
+            "end return 0", Long.class);
+
+    private final StringRedisTemplate redis;
+    private final ShareRepository shareRepo;
+    private final LikeCounterService likeCounter;
+    private final TaskScheduler scheduler;
+    private final Duration settleDelay;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    public ShareRankingService(StringRedisTemplate redis, ShareRepository shareRepo, LikeCounterService likeCounter,
+                               TaskScheduler scheduler,
+                               @Value("${app.ranking.reconcile-settle:5s}") Duration settleDelay) {
+        this.redis = redis;
+        this.shareRepo = shareRepo;
+        this.likeCounter = likeCounter;
+        this.scheduler = scheduler;
+        this.settleDelay = settleDelay;
+    }
+
+    /**
+     * Page of most-liked share ids, or empty when the ranking is unavailable (not built yet or
+     * Redis down) and the caller should fall back to the database.
+     */
+    public Optional<Page<UUID>> mostLikedIds(Pageable pageable) {
+        try {
+            Long total = redis.opsForZSet().zCard(MOST_LIKED_KEY);
+            if (total == null || total == 0) {
+                requestRebuild();
+                return Optional.empty();
+            }
+            long start = pageable.getOffset();
+            Set<String> members = redis.opsForZSet().reverseRange(MOST_LIKED_KEY, start, start + pageable.getPageSize() - 1);
+            List<UUID> ids = members == null
+                    ? Collections.emptyList()
+                    : members.stream().map(UUID::fromString).toList();
+            return Optional.of(new PageImpl<>(ids, pageable, total));
+        } catch (RuntimeException e) {
+            log.warn("Most-liked ranking unavailable, falling back to database: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onLikeChanged(ShareLikeChangedEvent event) {
+        try {
+            redis.execute(INCREMENT_IF_EXISTS, List.of(MOST_LIKED_KEY),
+                    String.valueOf(event.delta()), event.shareId().toString());
+        } catch (RuntimeException e) {
+            log.warn("Failed to update most-liked ranking for share {}: {}", event.shareId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onShareChanged(ShareChangedEvent event) {
+        try {
+            switch (event.type()) {
+                case CREATED -> redis.execute(ADD_IF_EXISTS, List.of(MOST_LIKED_KEY), "0", event.shareId().toString());
+                case DELETED -> redis.opsForZSet().remove(MOST_LIKED_KEY, event.shareId().toString());
+                default -> { }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update most-liked ranking for share {}: {}", event.shareId(), e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIfMissing() {
+        try {
+            if (!Boolean.TRUE.equals(redis.hasKey(MOST_LIKED_KEY))) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not build most-liked ranking on startup: {}", e.getMessage());
+        }
+    }
+
+    // Runs off the request thread; one request at a time per node, other nodes are kept out by the lock
+    private void requestRebuild() {
+        if (rebuildRequested.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Most-liked ranking rebuild failed: {}", e.getMessage());
+                } finally {
+                    rebuildRequested.set(false);
+                }
+            }, Instant.now());
+        }
+    }
+
+    /**
+     * Reconciles drift (missed events, direct SQL changes) against MySQL.
+     */
+    @Scheduled(cron = "${app.ranking.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        try {
+            if (!Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(RECONCILED_MARKER, "1", RECONCILED_MARKER_TTL))) {
+                return;
+            }
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Most-liked ranking reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the ranking when it is missing, otherwise corrects it in place. One node does this at a
+     * time; on the others it returns 0 without touching Redis. The lock is held until the settled
+     * correction has run and released afterwards, so the admin endpoint works again right away.
+     * <p>
+     * A missing ranking is built from like_count into a temporary key that is only renamed in if the
+     * live key still does not exist, so readers never see a half-built set. Likes are not applied to
+     * a missing key, so the ones that land during the build are picked up by an in-place correction
+     * right after it. An existing ranking is never replaced: likes are ZINCRBY'd into it by every node
+     * while the scan runs, and like_count lags them by the pending write-behind deltas. Instead, each
+     * share's score is compared with like_count plus this node's pending delta, and a difference is
+     * only applied, as a ZINCRBY, when it is unchanged after the settle delay (by then every healthy
+     * node has flushed). Members whose share no longer exists are removed.
+     *
+     * @return number of shares scanned
+     */
+    public long rebuild() {
+        if (!Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(REBUILD_LOCK, "1", REBUILD_LOCK_TTL))) {
+            log.debug("Most-liked ranking is being rebuilt by another node");
+            return 0;
+        }
+        boolean correctionScheduled = false;
+        try {
+            long built = 0;
+            if (!Boolean.TRUE.equals(redis.hasKey(MOST_LIKED_KEY))) {
+                built = build();
+            }
+            Map<UUID, Long> observed = new HashMap<>();
+            long scanned = findDriftInPlace(observed);
+            if (!observed.isEmpty()) {
+                scheduler.schedule(() -> {
+                    try {
+                        applySettledDrift(observed);
+                    } finally {
+                        releaseLock();
+                    }
+                }, Instant.now().plus(settleDelay));
+                correctionScheduled = true;
+            }
+            return built > 0 ? built : scanned;
+        } finally {
+            if (!correctionScheduled) {
+                releaseLock();
+            }
+        }
+    }
+
+    private void releaseLock() {
+        try {
+            redis.delete(REBUILD_LOCK);
+        } catch (RuntimeException e) {
+            // Expires on its own after REBUILD_LOCK_TTL
+            log.warn("Failed to release most-liked ranking lock: {}", e.getMessage());
+        }
+    }
+
+    // Returns 0 when nothing was renamed in (no shares, or another build got there first)
+    private long build() {
+        String tempKey = MOST_LIKED_KEY + ":rebuild:" + UUID.randomUUID();
+        long total = 0;
+        UUID after = new UUID(0, 0);
+        List<ShareRepository.ShareLikeCount> chunk;
+        do {
+            chunk = shareRepo.findLikeCountsAfter(after, Limit.of(REBUILD_CHUNK_SIZE));
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            for (ShareRepository.ShareLikeCount row : chunk) {
+                long score = likeCounter.effectiveLikeCount(row.getId(), row.getLikeCount());
+                tuples.add(new DefaultTypedTuple<>(row.getId().toString(), (double) score));
+            }
+            if (!tuples.isEmpty()) {
+                redis.opsForZSet().add(tempKey, tuples);
+                total += tuples.size();
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        if (total == 0 || !Boolean.TRUE.equals(redis.renameIfAbsent(tempKey, MOST_LIKED_KEY))) {
+            redis.delete(Collections.singleton(tempKey));
+            return 0;
+        }
+        log.info("Built most-liked ranking with {} shares", total);
+        return total;
+    }
+
+    private long findDriftInPlace(Map<UUID, Long> observed) {
+        if (!Boolean.TRUE.equals(redis.hasKey(MOST_LIKED_KEY))) {
+            return 0;
+        }
+        long total = 0;
+        UUID after = new UUID(0, 0);
+        List<ShareRepository.ShareLikeCount> chunk;
+        do {
+            chunk = shareRepo.findLikeCountsAfter(after, Limit.of(REBUILD_CHUNK_SIZE));
+            if (!chunk.isEmpty()) {
+                observed.putAll(findDrift(chunk));
+                total += chunk.size();
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+        removeDeletedShares();
+        return total;
+    }
+
+    // like_count plus local pending minus the ranked score, for shares where they differ
+    private Map<UUID, Long> findDrift(List<ShareRepository.ShareLikeCount> rows) {
+        Object[] members = rows.stream().map(row -> row.getId().toString()).toArray();
+        List<Double> scores = redis.opsForZSet().score(MOST_LIKED_KEY, members);
+        Map<UUID, Long> drift = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ShareRepository.ShareLikeCount row = rows.get(i);
+            long expected = likeCounter.effectiveLikeCount(row.getId(), row.getLikeCount());
+            Double score = scores == null ? null : scores.get(i);
+            if (score == null) {
+                // Missed CREATED event; addIfAbsent cannot overwrite a ZINCRBY that got there first
+                redis.execute(ADD_IF_EXISTS, List.of(MOST_LIKED_KEY), String.valueOf(expected), row.getId().toString());
+            } else if (expected != score.longValue()) {
+                drift.put(row.getId(), expected - score.longValue());
+            }
+        }
+        return drift;
+    }
+
+    private void applySettledDrift(Map<UUID, Long> observed) {
+        try {
+            int corrected = 0;
+            List<UUID> ids = List.copyOf(observed.keySet());
+            for (int from = 0; from < ids.size(); from += REBUILD_CHUNK_SIZE) {
+                List<UUID> batch = ids.subList(from, Math.min(from + REBUILD_CHUNK_SIZE, ids.size()));
+                for (Map.Entry<UUID, Long> entry : findDrift(shareRepo.findLikeCounts(batch)).entrySet()) {
+                    if (entry.getValue().equals(observed.get(entry.getKey()))) {
+                        redis.execute(INCREMENT_IF_EXISTS, List.of(MOST_LIKED_KEY),
+                                String.valueOf(entry.getValue()), entry.getKey().toString());
+                        corrected++;
+                    }
+                }
+            }
+            if (corrected > 0) {
+                log.info("Corrected most-liked ranking scores of {} shares", corrected);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Most-liked ranking correction failed: {}", e.getMessage());
+        }
+    }
+
+    // Members left behind by missed DELETED events
+    private void removeDeletedShares() {
+        List<String> members = new ArrayList<>(REBUILD_CHUNK_SIZE);
+        ScanOptions options = ScanOptions.scanOptions().count(REBUILD_CHUNK_SIZE).build();
+        try (Cursor<ZSetOperations.TypedTuple<String>> cursor = redis.opsForZSet().scan(MOST_LIKED_KEY, options)) {
+            while (cursor.hasNext()) {
+                members.add(cursor.next().getValue());
+                if (members.size() == REBUILD_CHUNK_SIZE || !cursor.hasNext()) {
+                    removeMissing(members);
+                    members.clear();
+                }
+            }
+        }
+    }
+
+    private void removeMissing(List<String> members) {
+        Set<UUID> ids = members.stream().map(UUID::fromString).collect(Collectors.toSet());
+        ids.removeAll(shareRepo.findExistingIds(ids));
+        if (!ids.isEmpty()) {
+            redis.opsForZSet().remove(MOST_LIKED_KEY, ids.stream().map(UUID::toString).toArray());
+        }
+    }
+}
@@ -0,0 +1,704 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.entity.CodeSnippet;
+import com.tpl.tupalle.entity.DTO.CodeSearchHit;
+import com.tpl.tupalle.entity.DTO.CodeSearchResponse;
+import com.tpl.tupalle.entity.Share;
+import com.tpl.tupalle.events.ShareChangedEvent;
+import com.tpl.tupalle.repositories.ShareRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Embedded Lucene index over share titles, descriptions and code snippets, stored under
+ * app.search.index-dir on every node. Documents are upserted/deleted after each committed share
+ * change (locally, and on other nodes via a Redis broadcast) and made visible by a near-real-time
+ * refresh; commits happen periodically and record the newest indexed updatedAt so a restart only
+ * re-indexes shares changed since then. Deletions missed while a node was down are found by
+ * comparing the indexed ids against the database after catch-up and on a schedule.
+ */
+@Component
+@Slf4j
+public class ShareSearchIndex implements MessageListener {
+
+    static final String ID = "id";
+    static final String TITLE = "title";
+    static final String DESCRIPTION = "description";
+    static final String FILENAME = "filename";
+    static final String CODE = "code";
+    static final String INDEXED_AT = "indexedAt";
+    static final String KIND = "kind";
+    static final String OWNER_ID = "ownerId";
+    static final String CREATED_AT = "createdAt";
+    // Per-snippet documents for code search; they share the ID term with their share document
+    static final String SNIPPET_INDEX = "snippetIndex";
+    static final String LANGUAGE = "language";
+    static final String SNIPPET_FILENAME = "snippetFilename";
+    static final String CONTENT = "content";
+    static final String CONTENT_TRIGRAMS = "contentTrigrams";
+
+    private static final String COMMIT_UPDATED_AT = "updatedAt";
+    private static final String COMMIT_SCHEMA = "schema";
+    // Bump when the document layout changes; an index written with another schema is rebuilt on startup
+    private static final String SCHEMA_VERSION = "3";
+    private static final String KIND_SHARE = "share";
+    private static final String KIND_SNIPPET = "snippet";
+    private static final int MAX_FACET_VALUES = 50;
+    private static final int REBUILD_CHUNK_SIZE = 500;
+    private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(5);
+    // Deeper pages than this are not served from the index
+    private static final int MAX_HITS = 10_000;
+    // Upper bound on snippets verified per code search, and on the time spent matching them
+    private static final int MAX_CODE_CANDIDATES = 5_000;
+    private static final Duration CODE_MATCH_BUDGET = Duration.ofSeconds(2);
+    // Every page re-verifies the matches before it, and only the first page is stable (see searchCode)
+    static final int MAX_CODE_PAGE = 4;
+    private static final int MAX_LINE_LENGTH = 200;
+
+    public static final String REINDEX_CHANNEL = "tupalle:search:reindex";
+
+    private final ShareRepository shareRepo;
+    private final SearchResultCache resultCache;
+    private final StringRedisTemplate redis;
+    // Lets a node skip its own reindex broadcasts
+    private final String nodeId = UUID.randomUUID().toString();
+    private final TransactionTemplate readOnlyTx;
+    private final Analyzer analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(),
+            Map.of(CONTENT_TRIGRAMS, new TrigramAnalyzer()));
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+    // Ordinal state for language facet counts, rebuilt lazily once per refreshed reader
+    private volatile FacetState facetState;
+
+    // Newest share.updatedAt written to the index; recorded with every commit
+    private volatile Instant indexedUpTo;
+    private final String committedSchema;
+
+    public ShareSearchIndex(ShareRepository shareRepo, SearchResultCache resultCache, StringRedisTemplate redis,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${app.search.index-dir:data/search-index}") Path indexDir) throws IOException {
+        this.shareRepo = shareRepo;
+        this.resultCache = resultCache;
+        this.redis = redis;
+        this.readOnlyTx = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTx.setReadOnly(true);
+        this.directory = FSDirectory.open(indexDir);
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.facetsConfig.setMultiValued(LANGUAGE, true);
+
+        Map<String, String> commitData = new HashMap<>();
+        writer.getLiveCommitData().forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+        this.indexedUpTo = commitData.containsKey(COMMIT_UPDATED_AT)
+                ? Instant.parse(commitData.get(COMMIT_UPDATED_AT))
+                : Instant.EPOCH;
+        this.committedSchema = commitData.get(COMMIT_SCHEMA);
+    }
+
+    /**
+     * Share ids matching the optional free text, snippet language and owner filters. With text the
+     * results are relevance-ranked (terms ANDed across title (boosted), filename, description and
+     * code, query syntax treated literally); without text they are newest first.
+     */
+    public Slice<UUID> search(String text, String language, Long ownerId, Pageable pageable, boolean withTotal) {
+        BooleanQuery.Builder builder = baseQuery(text, ownerId);
+        if (language != null && !language.isBlank()) {
+            builder.add(new TermQuery(new Term(LANGUAGE, normalizeLanguage(language))), BooleanClause.Occur.FILTER);
+        }
+        Query query = builder.build();
+        int end = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_HITS);
+        IndexSearcher searcher = acquire();
+        try {
+            TopDocs top = hasText(text)
+                    ? searcher.search(query, end + 1)
+                    : searcher.search(query, end + 1, new Sort(new SortField(CREATED_AT, SortField.Type.LONG, true)));
+            List<UUID> ids = new ArrayList<>(pageable.getPageSize());
+            for (int i = (int) pageable.getOffset(); i < Math.min(end, top.scoreDocs.length); i++) {
+                ids.add(UUID.fromString(searcher.storedFields().document(top.scoreDocs[i].doc).get(ID)));
+            }
+            if (withTotal) {
+                return new PageImpl<>(ids, pageable, searcher.count(query));
+            }
+            return new SliceImpl<>(ids, pageable, top.scoreDocs.length > end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    /**
+     * Number of matching shares per snippet language, ignoring any language filter so every
+     * language stays selectable. Counted from the doc-values ordinals of the matching documents.
+     */
+    public Map<String, Long> languageCounts(String text, Long ownerId) {
+        IndexSearcher searcher = acquire();
+        try {
+            FacetsCollector collector = new FacetsCollector();
+            searcher.search(baseQuery(text, ownerId).build(), collector);
+            SortedSetDocValuesReaderState state = facetState(searcher);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            if (state == null) {
+                return counts;
+            }
+            FacetResult result = new SortedSetDocValuesFacetCounts(state, collector)
+                    .getTopChildren(MAX_FACET_VALUES, LANGUAGE);
+            if (result != null) {
+                for (LabelAndValue entry : result.labelValues) {
+                    counts.put(entry.label, entry.value.longValue());
+                }
+            }
+            return counts;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    /**
+     * Substring (or regex) search inside snippet bodies. The trigrams every match must contain are
+     * intersected as posting lists to find candidate snippets, which are then checked against the
+     * stored content; matching is case-insensitive. At most {@code MAX_CODE_CANDIDATES} snippets are
+     * verified, and the response says when that cut off candidates this page did not get to.
+     * <p>
+     * Candidates come in index order, which changes when segments merge, and a page is found by
+     * verifying every match before it again. Only the first page is reliable: later pages can
+     * repeat or miss hits if the index changed in between, and they stop at {@link #MAX_CODE_PAGE}.
+     *
+     * @throws IllegalArgumentException if the query is not a valid pattern or yields no trigram, or
+     *                                  the page is beyond {@link #MAX_CODE_PAGE}
+     */
+    public CodeSearchResponse searchCode(String text, boolean regex, String language, Pageable pageable) {
+        if (pageable.getPageNumber() > MAX_CODE_PAGE) {
+            throw new IllegalArgumentException("Code search serves at most " + (MAX_CODE_PAGE + 1)
+                    + " pages; refine the query instead");
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex ? text : Pattern.quote(text), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid regular expression: " + e.getDescription());
+        }
+        Set<String> grams = regex
+                ? TrigramQueries.trigrams(TrigramQueries.requiredLiterals(text))
+                : TrigramQueries.trigrams(text);
+        if (grams.isEmpty()) {
+            throw new IllegalArgumentException("Query needs at least 3 consecutive literal characters");
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(KIND, KIND_SNIPPET)), BooleanClause.Occur.FILTER);
+        grams.forEach(gram -> query.add(new TermQuery(new Term(CONTENT_TRIGRAMS, gram)), BooleanClause.Occur.FILTER));
+        if (language != null && !language.isBlank()) {
+            query.add(new TermQuery(new Term(LANGUAGE, normalizeLanguage(language))), BooleanClause.Occur.FILTER);
+        }
+
+        long deadline = System.nanoTime() + CODE_MATCH_BUDGET.toNanos();
+        List<CodeSearchHit> hits = new ArrayList<>(pageable.getPageSize());
+        long skipped = 0;
+        boolean hasNext = false;
+        IndexSearcher searcher = acquire();
+        try {
+            // Constant-score filter query: candidates come back in index order
+            // One extra candidate tells whether the cap cut any off
+            TopDocs candidates = searcher.search(query.build(), MAX_CODE_CANDIDATES + 1);
+            boolean capped = candidates.scoreDocs.length > MAX_CODE_CANDIDATES;
+            for (int i = 0; i < Math.min(candidates.scoreDocs.length, MAX_CODE_CANDIDATES); i++) {
+                ScoreDoc candidate = candidates.scoreDocs[i];
+                Document doc = searcher.storedFields().document(candidate.doc);
+                String content = doc.get(CONTENT);
+                Matcher matcher = pattern.matcher(new DeadlineCharSequence(content, deadline));
+                if (!matcher.find()) {
+                    continue;
+                }
+                if (skipped < pageable.getOffset()) {
+                    skipped++;
+                    continue;
+                }
+                if (hits.size() == pageable.getPageSize()) {
+                    hasNext = true;
+                    break;
+                }
+                hits.add(toHit(doc, content, matcher.start()));
+            }
+            return new CodeSearchResponse(new SliceImpl<>(hits, pageable, hasNext), capped && !hasNext);
+        } catch (DeadlineCharSequence.DeadlineExceededException e) {
+            throw new IllegalArgumentException("Query is too expensive to evaluate");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onShareChanged(ShareChangedEvent event) {
+        reindex(event.shareId());
+        try {
+            redis.convertAndSend(REINDEX_CHANNEL, nodeId + ":" + event.shareId());
+        } catch (RuntimeException e) {
+            log.warn("Failed to broadcast search index change for {}: {}", event.shareId(), e.getMessage());
+        }
+    }
+
+    // Changes committed on other nodes; every node keeps its own copy of the index
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        try {
+            reindex(UUID.fromString(body.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed search index change message");
+        }
+    }
+
+    // Re-reads the share (deleting its documents if it is gone), makes the change searchable
+    // right away and then drops cached results it affects
+    private void reindex(UUID shareId) {
+        try {
+            List<SearchResultCache.Change> changes = index(List.of(shareId), Instant.now());
+            searcherManager.maybeRefreshBlocking();
+            changes.forEach(resultCache::invalidate);
+        } catch (IOException | RuntimeException e) {
+            // The next rebuild (or restart catch-up) repairs the document
+            log.warn("Failed to index share {}: {}", shareId, e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the index on first start (or after a schema change) and otherwise re-indexes shares
+     * changed since the last commit, then drops shares deleted in the meantime.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        try {
+            if (writer.getDocStats().numDocs == 0 || !SCHEMA_VERSION.equals(committedSchema)) {
+                rebuild();
+                return;
+            }
+            // Margin for transactions that committed after a newer one was already indexed
+            List<UUID> changed = shareRepo.findIdsUpdatedSince(indexedUpTo.minus(CATCH_UP_MARGIN));
+            Instant now = Instant.now();
+            for (int i = 0; i < changed.size(); i += REBUILD_CHUNK_SIZE) {
+                index(changed.subList(i, Math.min(i + REBUILD_CHUNK_SIZE, changed.size())), now);
+            }
+            commit();
+            searcherManager.maybeRefresh();
+            resultCache.invalidateAll();
+            log.info("Search index caught up with {} changed shares", changed.size());
+            removeDeleted();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Search index catch-up failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-indexes every share in place and then drops documents that were not touched, so searches
+     * keep working against the old documents while the rebuild runs.
+     *
+     * @return number of shares indexed
+     */
+    public long rebuild() throws IOException {
+        Instant started = Instant.now();
+        long total = 0;
+        UUID after = new UUID(0, 0);
+        List<UUID> chunk;
+        do {
+            chunk = shareRepo.findIdsAfter(after, Limit.of(REBUILD_CHUNK_SIZE));
+            if (!chunk.isEmpty()) {
+                index(chunk, started);
+                after = chunk.get(chunk.size() - 1);
+                total += chunk.size();
+            }
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        writer.deleteDocuments(LongPoint.newRangeQuery(INDEXED_AT, Long.MIN_VALUE, started.toEpochMilli() - 1));
+        commit();
+        searcherManager.maybeRefresh();
+        resultCache.invalidateAll();
+        log.info("Rebuilt search index with {} shares", total);
+        return total;
+    }
+
+    /**
+     * Removes the documents of shares that no longer exist. Walks the indexed ids in chunks and
+     * checks each chunk against the database; the catch-up query cannot see deleted rows.
+     *
+     * @return number of shares removed
+     */
+    @Scheduled(cron = "${app.search.reconcile-cron:0 15 4 * * *}")
+    public int removeDeleted() {
+        List<SearchResultCache.Change> changes = new ArrayList<>();
+        IndexSearcher searcher = acquire();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            Terms terms = MultiTerms.getTerms(reader, ID);
+            if (terms == null) {
+                return 0;
+            }
+            Bits liveDocs = MultiBits.getLiveDocs(reader);
+            TermsEnum ids = terms.iterator();
+            PostingsEnum postings = null;
+            List<UUID> chunk = new ArrayList<>(REBUILD_CHUNK_SIZE);
+            for (BytesRef id = ids.next(); id != null; id = ids.next()) {
+                postings = ids.postings(postings, PostingsEnum.NONE);
+                if (hasLiveDoc(postings, liveDocs)) {
+                    chunk.add(UUID.fromString(id.utf8ToString()));
+                }
+                if (chunk.size() == REBUILD_CHUNK_SIZE) {
+                    changes.addAll(deleteMissing(chunk));
+                    chunk.clear();
+                }
+            }
+            changes.addAll(deleteMissing(chunk));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Search index reconciliation failed: {}", e.getMessage());
+        } finally {
+            release(searcher);
+        }
+        if (!changes.isEmpty()) {
+            try {
+                searcherManager.maybeRefreshBlocking();
+            } catch (IOException e) {
+                log.warn("Search index refresh failed: {}", e.getMessage());
+            }
+            changes.forEach(resultCache::invalidate);
+            log.info("Removed {} deleted shares from the search index", changes.size());
+        }
+        return changes.size();
+    }
+
+    // Terms of deleted documents stay in the dictionary until their segment is merged
+    private static boolean hasLiveDoc(PostingsEnum postings, Bits liveDocs) throws IOException {
+        for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<SearchResultCache.Change> deleteMissing(List<UUID> indexed) throws IOException {
+        if (indexed.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> existing = new HashSet<>(shareRepo.findExistingIds(indexed));
+        List<SearchResultCache.Change> changes = new ArrayList<>();
+        for (UUID id : indexed) {
+            if (!existing.contains(id)) {
+                writer.deleteDocuments(new Term(ID, id.toString()));
+                changes.add(new SearchResultCache.Change(id, null, Set.of(), ""));
+            }
+        }
+        return changes;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Search index refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms:60000}")
+    public void commit() {
+        try {
+            writer.setLiveCommitData(Map.of(COMMIT_UPDATED_AT, indexedUpTo.toString(),
+                    COMMIT_SCHEMA, SCHEMA_VERSION).entrySet());
+            writer.commit();
+        } catch (IOException e) {
+            log.warn("Search index commit failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        commit();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Failed to release index searcher: {}", e.getMessage());
+        }
+    }
+
+    private BooleanQuery.Builder baseQuery(String text, Long ownerId) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(KIND, KIND_SHARE)), BooleanClause.Occur.FILTER);
+        if (hasText(text)) {
+            builder.add(parse(text), BooleanClause.Occur.MUST);
+        }
+        if (ownerId != null) {
+            builder.add(new TermQuery(new Term(OWNER_ID, ownerId.toString())), BooleanClause.Occur.FILTER);
+        }
+        return builder;
+    }
+
+    private static boolean hasText(String text) {
+        return text != null && !text.isBlank();
+    }
+
+    private static String normalizeLanguage(String language) {
+        return language.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Null while the index has no language values yet
+    private SortedSetDocValuesReaderState facetState(IndexSearcher searcher) throws IOException {
+        FacetState current = facetState;
+        if (current != null && current.reader() == searcher.getIndexReader()) {
+            return current.state();
+        }
+        SortedSetDocValuesReaderState state;
+        try {
+            state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader(), facetsConfig);
+        } catch (IllegalArgumentException e) {
+            // Thrown when no document has the facet field
+            state = null;
+        }
+        facetState = new FacetState(searcher.getIndexReader(), state);
+        return state;
+    }
+
+    private record FacetState(IndexReader reader, SortedSetDocValuesReaderState state) {}
+
+    Query parse(String text) {
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                new String[]{TITLE, FILENAME, DESCRIPTION, CODE}, analyzer,
+                Map.of(TITLE, 3f, FILENAME, 2f, DESCRIPTION, 1f, CODE, 1f));
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            return parser.parse(QueryParser.escape(text.trim()));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid search query", e);
+        }
+    }
+
+    // Loads the shares in one read-only transaction (collections are lazy) and upserts their documents
+    private List<SearchResultCache.Change> index(Collection<UUID> ids, Instant indexedAt) throws IOException {
+        List<IndexedShare> indexed = readOnlyTx.execute(status -> shareRepo.findAllByIdIn(ids).stream()
+                .map(share -> new IndexedShare(toDocuments(share, indexedAt), toChange(share)))
+                .toList());
+        List<SearchResultCache.Change> changes = new ArrayList<>(ids.size());
+        Set<UUID> found = new HashSet<>();
+        for (IndexedShare share : indexed) {
+            // Replaces the share document and all of its snippet documents atomically
+            UUID id = share.change().shareId();
+            writer.updateDocuments(new Term(ID, id.toString()), share.block());
+            found.add(id);
+            changes.add(share.change());
+        }
+        for (UUID id : ids) {
+            if (!found.contains(id)) {
+                writer.deleteDocuments(new Term(ID, id.toString()));
+                changes.add(new SearchResultCache.Change(id, null, Set.of(), ""));
+            }
+        }
+        return changes;
+    }
+
+    private record IndexedShare(List<Document> block, SearchResultCache.Change change) {}
+
+    private static SearchResultCache.Change toChange(Share share) {
+        StringBuilder text = new StringBuilder(share.getTitle());
+        if (share.getDescription() != null) {
+            text.append('\n').append(share.getDescription());
+        }
+        Set<String> languages = new HashSet<>();
+        for (CodeSnippet snippet : share.getCodeSnippets()) {
+            languages.add(normalizeLanguage(snippet.getLanguage()));
+            if (snippet.getFilename() != null) {
+                text.append('\n').append(snippet.getFilename());
+            }
+            text.append('\n').append(snippet.getContent());
+        }
+        return new SearchResultCache.Change(share.getId(), share.getOwner().getId(), languages, text.toString());
+    }
+
+    private List<Document> toDocuments(Share share, Instant indexedAt) {
+        List<Document> block = new ArrayList<>();
+        try {
+            // Turns the facet fields into their doc-values representation
+            block.add(facetsConfig.build(toDocument(share, indexedAt)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<CodeSnippet> snippets = share.getCodeSnippets();
+        for (int i = 0; i < snippets.size(); i++) {
+            CodeSnippet snippet = snippets.get(i);
+            Document doc = new Document();
+            doc.add(new StringField(ID, share.getId().toString(), Field.Store.YES));
+            doc.add(new StringField(KIND, KIND_SNIPPET, Field.Store.NO));
+            doc.add(new LongPoint(INDEXED_AT, indexedAt.toEpochMilli()));
+            doc.add(new StoredField(SNIPPET_INDEX, i));
+            doc.add(new StringField(LANGUAGE, normalizeLanguage(snippet.getLanguage()), Field.Store.YES));
+            if (snippet.getFilename() != null) {
+                doc.add(new StoredField(SNIPPET_FILENAME, snippet.getFilename()));
+            }
+            doc.add(new StoredField(CONTENT, snippet.getContent()));
+            doc.add(new TextField(CONTENT_TRIGRAMS, snippet.getContent(), Field.Store.NO));
+            block.add(doc);
+        }
+        return block;
+    }
+
+    private static CodeSearchHit toHit(Document doc, String content, int offset) {
+        int lineStart = content.lastIndexOf('\n', offset - 1) + 1;
+        int lineEnd = content.indexOf('\n', offset);
+        String line = content.substring(lineStart, lineEnd < 0 ? content.length() : lineEnd).strip();
+        if (line.length() > MAX_LINE_LENGTH) {
+            line = line.substring(0, MAX_LINE_LENGTH);
+        }
+        int lineNumber = (int) content.substring(0, lineStart).chars().filter(c -> c == '\n').count() + 1;
+        return new CodeSearchHit(doc.get(ID), doc.getField(SNIPPET_INDEX).numericValue().intValue(),
+                doc.get(LANGUAGE), doc.get(SNIPPET_FILENAME), lineNumber, line);
+    }
+
+    private Document toDocument(Share share, Instant indexedAt) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, share.getId().toString(), Field.Store.YES));
+        doc.add(new StringField(KIND, KIND_SHARE, Field.Store.NO));
+        doc.add(new LongPoint(INDEXED_AT, indexedAt.toEpochMilli()));
+        doc.add(new StringField(OWNER_ID, share.getOwner().getId().toString(), Field.Store.NO));
+        if (share.getCreatedAt() != null) {
+            doc.add(new NumericDocValuesField(CREATED_AT, share.getCreatedAt().toEpochMilli()));
+        }
+        doc.add(new TextField(TITLE, share.getTitle(), Field.Store.NO));
+        if (share.getDescription() != null) {
+            doc.add(new TextField(DESCRIPTION, share.getDescription(), Field.Store.NO));
+        }
+        Set<String> languages = new LinkedHashSet<>();
+        for (CodeSnippet snippet : share.getCodeSnippets()) {
+            languages.add(normalizeLanguage(snippet.getLanguage()));
+            if (snippet.getFilename() != null) {
+                doc.add(new TextField(FILENAME, snippet.getFilename(), Field.Store.NO));
+            }
+            doc.add(new TextField(CODE, snippet.getContent(), Field.Store.NO));
+        }
+        for (String language : languages) {
+            // Term for filtering, facet field (ordinals in doc values) for counting
+            doc.add(new StringField(LANGUAGE, language, Field.Store.NO));
+            doc.add(new SortedSetDocValuesFacetField(LANGUAGE, language));
+        }
+        if (share.getUpdatedAt() != null && share.getUpdatedAt().isAfter(indexedUpTo)) {
+            indexedUpTo = share.getUpdatedAt();
+        }
+        return doc;
+    }
+
+    // Overlapping 3-character grams of the lower-cased text, whitespace and punctuation included
+    private static final class TrigramAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new NGramTokenizer(3, 3);
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    }
+}
@@ -1,35 +1,98 @@
 package com.tpl.tupalle.services;
 
+import com.tpl.tupalle.entity.DTO.BatchLikeRequest;
+import com.tpl.tupalle.entity.DTO.BatchLikeResponse;
+import com.tpl.tupalle.entity.DTO.CodeSearchResponse;
 import com.tpl.tupalle.entity.DTO.CreateShareDTO;
 import com.tpl.tupalle.entity.DTO.ShareResponse;
+import com.tpl.tupalle.entity.DTO.ShareSummaryResponse;
+import com.tpl.tupalle.entity.CodeSnippet;
 import com.tpl.tupalle.entity.Share;
-import com.tpl.tupalle.entity.ShareLike;
+import com.tpl.tupalle.repositories.ImageAssetRepository;
+import com.tpl.tupalle.repositories.ShareLikeBatchRepository;
 import com.tpl.tupalle.repositories.ShareLikeRepository;
 import com.tpl.tupalle.repositories.ShareRepository;
 import com.tpl.tupalle.entity.User;
 import com.tpl.tupalle.repositories.UserRepository;
+import com.tpl.tupalle.entity.DTO.CursorPage;
+import com.tpl.tupalle.events.ShareChangedEvent;
+import com.tpl.tupalle.events.ShareLikeChangedEvent;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 public class ShareService {
 
+    private static final int DESCRIPTION_EXCERPT_LENGTH = 200;
+    private static final int SNIPPET_PREVIEW_LENGTH = 300;
+    private static final int ACCOUNT_UNLIKE_CHUNK_SIZE = 200;
+
     private final ShareRepository shareRepo;
     private final ShareLikeRepository likeRepo;
     private final UserRepository userRepository;
+    private final ShareRankingService rankingService;
+    private final ShareCache shareCache;
+    private final LikeCounterService likeCounters;
+    private final ShareLikeBatchRepository likeBatchRepo;
+    private final LikedSetCache likedSets;
+    private final ShareSearchIndex searchIndex;
+    private final SearchResultCache searchResults;
+    private final S3Service s3Service;
+    private final ImageVariantService imageVariants;
+    private final ImageAssetRepository imageAssets;
+    private final TrendingService trendingService;
     private final UserService userService;
+    private final ApplicationEventPublisher events;
 
-    public ShareService(ShareRepository shareRepo, ShareLikeRepository likeRepo, UserRepository userRepository, UserService userService) {
+    public ShareService(ShareRepository shareRepo, ShareLikeRepository likeRepo, UserRepository userRepository,
+                        ShareRankingService rankingService, ShareCache shareCache,
+                        LikeCounterService likeCounters, ShareLikeBatchRepository likeBatchRepo,
+                        LikedSetCache likedSets, ShareSearchIndex searchIndex,
+                        SearchResultCache searchResults, S3Service s3Service,
+                        ImageVariantService imageVariants, ImageAssetRepository imageAssets,
+                        TrendingService trendingService, UserService userService,
+                        ApplicationEventPublisher events) {
         this.shareRepo = shareRepo;
         this.likeRepo = likeRepo;
         this.userRepository = userRepository;
+        this.rankingService = rankingService;
+        this.shareCache = shareCache;
+        this.likeCounters = likeCounters;
+        this.likeBatchRepo = likeBatchRepo;
+        this.likedSets = likedSets;
+        this.searchIndex = searchIndex;
+        this.searchResults = searchResults;
+        this.s3Service = s3Service;
+        this.imageVariants = imageVariants;
+        this.imageAssets = imageAssets;
+        this.trendingService = trendingService;
         this.userService = userService;
+        this.events = events;
     }
 
     @Transactional
@@ -45,46 +108,146 @@ public class ShareService {
         s.setOwner(owner);
         s.setTitle(req.title());
         s.setDescription(req.description());
-        s.setImageUrls(req.imageUrls() != null ? req.imageUrls() : java.util.Collections.emptyList());
+        s.setImageUrls(toStorageRefs(owner.getId(), req.imageUrls(), Collections.emptyList()));
         s.setCodeSnippets(req.codeSnippets() != null ? req.codeSnippets() : java.util.Collections.emptyList());
+        updateImageReferences(Collections.emptyList(), s.getImageUrls());
 
-        return shareRepo.save(s);
+        Share saved = shareRepo.save(s);
+        events.publishEvent(new ShareChangedEvent(saved.getId(), ShareChangedEvent.Type.CREATED));
+        return saved;
     }
 
     @Transactional
     public void likeShare(UUID shareId, String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        Share share = shareRepo.findById(shareId)
-                .orElseThrow(() -> new EntityNotFoundException("Share not found"));
-
-        if (likeRepo.existsByShareIdAndUserId(shareId, user.getId())) return; // idempotent
+        likeShare(shareId, resolveUserId(username));
+    }
 
-        ShareLike like = new ShareLike();
-        like.setShare(share);
-        like.setUser(user);
-        likeRepo.save(like);
+    /**
+     * Idempotent like relying on uk_share_like: INSERT IGNORE reports whether a row was added, and
+     * only then is a like_count delta emitted, so concurrent likes never lose updates.
+     */
+    @Transactional
+    public void likeShare(UUID shareId, Long userId) {
+        int inserted = likeRepo.insertIgnore(UUID.randomUUID(), shareId, userId, Instant.now().getEpochSecond());
+        if (inserted == 0) {
+            // Either already liked (idempotent) or the share does not exist (IGNORE also swallows the FK error)
+            if (!shareRepo.existsById(shareId)) {
+                throw new EntityNotFoundException("Share not found");
+            }
+            return;
+        }
 
-        share.setLikeCount(share.getLikeCount() + 1);
-        
-        // Update the share owner's title
-        userService.updateUserTitle(share.getOwner().getUsername());
+        // like_count itself is bumped write-behind by LikeCounterService once this commits
+        onLikeChanged(shareId, userId, 1);
     }
 
     @Transactional
     public void unlikeShare(UUID shareId, String username) {
-        User user = userRepository.findByUsername(username)
+        unlikeShare(shareId, resolveUserId(username));
+    }
+
+    @Transactional
+    public void unlikeShare(UUID shareId, Long userId) {
+        trendingService.removeLikes(userId, List.of(shareId));
+        int deleted = likeRepo.deleteByShareIdAndUserIdReturningCount(shareId, userId);
+        if (deleted == 0) {
+            return;
+        }
+
+        onLikeChanged(shareId, userId, -deleted);
+    }
+
+    /**
+     * Applies a batch of like/unlike operations for one user in a single transaction: one lookup of
+     * the target shares, one JDBC batch of inserts and one of deletes. When a share appears more than
+     * once, the last operation wins (replay order of an offline queue).
+     */
+    @Transactional
+    public BatchLikeResponse applyLikeBatch(Long userId, List<BatchLikeRequest.Operation> operations) {
+        Map<UUID, Boolean> desired = new LinkedHashMap<>();
+        for (BatchLikeRequest.Operation op : operations) {
+            desired.remove(op.shareId());
+            desired.put(op.shareId(), op.liked());
+        }
+
+        Map<UUID, ShareRepository.ShareLikeState> states = shareRepo.findLikeStates(desired.keySet()).stream()
+                .collect(Collectors.toMap(ShareRepository.ShareLikeState::getId, Function.identity()));
+
+        List<UUID> toLike = new ArrayList<>();
+        List<UUID> toUnlike = new ArrayList<>();
+        desired.forEach((shareId, liked) -> {
+            if (states.containsKey(shareId)) {
+                (liked ? toLike : toUnlike).add(shareId);
+            }
+        });
+
+        Map<UUID, Integer> deltas = new HashMap<>();
+        int[] inserted = toLike.isEmpty() ? new int[0]
+                : likeBatchRepo.insertLikesIgnoringDuplicates(userId, toLike, Instant.now().getEpochSecond());
+        for (int i = 0; i < inserted.length; i++) {
+            deltas.put(toLike.get(i), inserted[i] > 0 ? 1 : 0);
+        }
+        if (!toUnlike.isEmpty()) {
+            trendingService.removeLikes(userId, toUnlike);
+        }
+        int[] deleted = toUnlike.isEmpty() ? new int[0] : likeBatchRepo.deleteLikes(userId, toUnlike);
+        for (int i = 0; i < deleted.length; i++) {
+            deltas.put(toUnlike.get(i), deleted[i] > 0 ? -deleted[i] : 0);
+        }
+
+        List<BatchLikeResponse.Result> results = new ArrayList<>(desired.size());
+        desired.forEach((shareId, liked) -> {
+            ShareRepository.ShareLikeState state = states.get(shareId);
+            if (state == null) {
+                results.add(new BatchLikeResponse.Result(shareId.toString(), liked, BatchLikeResponse.Status.NOT_FOUND, 0));
+                return;
+            }
+            int delta = deltas.getOrDefault(shareId, 0);
+            if (delta != 0) {
+                events.publishEvent(new ShareLikeChangedEvent(shareId, state.getOwnerId(), userId, delta));
+            }
+            // The delta reaches LikeCounterService only after commit, so add it here for the response
+            long likeCount = Math.max(0, likeCounters.effectiveLikeCount(shareId, state.getLikeCount()) + delta);
+            results.add(new BatchLikeResponse.Result(shareId.toString(), liked,
+                    delta != 0 ? BatchLikeResponse.Status.APPLIED : BatchLikeResponse.Status.UNCHANGED, likeCount));
+        });
+        return new BatchLikeResponse(results);
+    }
+
+    private void onLikeChanged(UUID shareId, Long userId, int delta) {
+        Long ownerId = shareRepo.findOwnerIdById(shareId)
+                .orElseThrow(() -> new EntityNotFoundException("Share not found"));
+        // The owner's total_likes and title are updated by the LikeCounterService flush after commit
+        events.publishEvent(new ShareLikeChangedEvent(shareId, ownerId, userId, delta));
+    }
+
+    @Transactional(readOnly = true)
+    public Long resolveUserId(String username) {
+        return userRepository.findIdByUsername(username)
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
-        Share share = shareRepo.findById(shareId)
+    }
+
+    /**
+     * Cheap (id, updatedAt, likeCount, owner title) lookup used to answer conditional GETs without loading collections.
+     */
+    @Transactional(readOnly = true)
+    public ShareRepository.ShareVersion getShareVersion(UUID id) {
+        return shareRepo.findVersionById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Share not found"));
+    }
 
-        likeRepo.findByShareIdAndUserId(shareId, user.getId()).ifPresent(l -> {
-            likeRepo.delete(l);
-            share.setLikeCount(Math.max(0, share.getLikeCount() - 1));
-            
-            // Update the share owner's title
-            userService.updateUserTitle(share.getOwner().getUsername());
-        });
+    // Image references alone, for validating a poll without loading the share
+    @Transactional(readOnly = true)
+    public List<String> getImageRefs(UUID id) {
+        return shareRepo.findImageUrlsById(id);
+    }
+
+    /**
+     * Which of these images already have variants. Part of response ETags, because the image URLs in
+     * a body switch to the variants once they are generated.
+     */
+    public String variantState(Collection<String> imageRefs) {
+        return imageVariants.readyAmong(imageRefs).stream().sorted().collect(Collectors.joining(","));
     }
 
     @Transactional(readOnly = true)
@@ -93,26 +256,224 @@ public class ShareService {
                 .orElseThrow(() -> new EntityNotFoundException("Share not found"));
     }
 
+    /**
+     * Fully hydrated share from the in-process cache, loading owner, images and snippets on a miss.
+     */
+    @Transactional(readOnly = true)
+    public ShareSnapshot getShareSnapshot(UUID id) {
+        return shareCache.get(id, key -> ShareSnapshot.of(getShare(key)));
+    }
+
+    public Optional<ShareSnapshot> getCachedShareSnapshot(UUID id) {
+        return shareCache.getIfPresent(id);
+    }
+
+    // Current title of a snapshot's owner; snapshots do not carry it (see ShareSnapshot)
+    @Transactional(readOnly = true)
+    public String getOwnerTitle(String ownerUsername) {
+        return userRepository.findTitleByUsername(ownerUsername).orElse("Newbie Coder");
+    }
+
     @Transactional(readOnly = true)
     public Page<Share> list(Pageable pageable) {
         return shareRepo.findAll(pageable);
     }
 
+    /**
+     * Count-free variant: with withTotal=false the result is a Slice computed from size+1 rows
+     * and no count(*) is issued. The same applies to the other (Pageable, boolean) overloads.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Share> list(Pageable pageable, boolean withTotal) {
+        return withTotal ? list(pageable) : shareRepo.findSliceAll(pageable);
+    }
+
+    /**
+     * Served from the Redis ranking when available (ZREVRANGE + one bulk fetch), otherwise
+     * from ORDER BY like_count on MySQL.
+     */
     @Transactional(readOnly = true)
     public Page<Share> listMostLiked(Pageable pageable) {
+        Optional<Page<UUID>> ranked = rankingService.mostLikedIds(pageable);
+        if (ranked.isPresent()) {
+            Page<UUID> ids = ranked.get();
+            return new PageImpl<>(findAllInOrder(ids.getContent()), pageable, ids.getTotalElements());
+        }
         return shareRepo.findAllByOrderByLikeCountDesc(pageable);
     }
 
+    // The Redis ranking already knows its size in O(1), so only the database fallback benefits from a Slice
+    @Transactional(readOnly = true)
+    public Slice<Share> listMostLiked(Pageable pageable, boolean withTotal) {
+        if (withTotal) {
+            return listMostLiked(pageable);
+        }
+        Optional<Page<UUID>> ranked = rankingService.mostLikedIds(pageable);
+        if (ranked.isPresent()) {
+            Page<UUID> ids = ranked.get();
+            return new SliceImpl<>(findAllInOrder(ids.getContent()), pageable, ids.hasNext());
+        }
+        return shareRepo.findSliceByOrderByLikeCountDesc(pageable);
+    }
+
+    // Bulk-loads shares and returns them in the order of the given ids, skipping ids that no longer exist
+    private List<Share> findAllInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<UUID, Share> byId = shareRepo.findAllByIdIn(ids).stream()
+                .collect(Collectors.toMap(Share::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Share> listTrending(Pageable pageable) {
+        return shareRepo.findAllByOrderByTrendingScoreDescIdDesc(pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<Share> listTrending(Pageable pageable, boolean withTotal) {
+        return withTotal ? listTrending(pageable) : shareRepo.findSliceByOrderByTrendingScoreDescIdDesc(pageable);
+    }
+
     @Transactional(readOnly = true)
     public Page<Share> listRecent(Pageable pageable) {
         return shareRepo.findAllByOrderByCreatedAtDesc(pageable);
     }
 
+    @Transactional(readOnly = true)
+    public Slice<Share> listRecent(Pageable pageable, boolean withTotal) {
+        return withTotal ? listRecent(pageable) : shareRepo.findSliceByOrderByCreatedAtDesc(pageable);
+    }
+
+    /**
+     * Keyset page of the recent feed. Pass a null cursor for the first page. Each page costs
+     * one index range scan of size+1 rows no matter how deep the client has scrolled.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Share> listRecentAfter(String after, int size) {
+        Limit limit = cursorLimit(size);
+        List<Share> rows;
+        if (after == null || after.isEmpty()) {
+            rows = shareRepo.findRecentFirstPage(limit);
+        } else {
+            ShareCursor cursor = ShareCursor.decode(after);
+            rows = shareRepo.findRecentAfter(cursor.createdAt(), cursor.id(), limit);
+        }
+        return toCursorPage(rows, size, last -> ShareCursor.ofCreatedAt(last.getCreatedAt(), last.getId()));
+    }
+
+    /**
+     * Keyset page of the most-liked feed, ordered by (likeCount, id) descending.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Share> listMostLikedAfter(String after, int size) {
+        Limit limit = cursorLimit(size);
+        List<Share> rows;
+        if (after == null || after.isEmpty()) {
+            rows = shareRepo.findMostLikedFirstPage(limit);
+        } else {
+            ShareCursor cursor = ShareCursor.decode(after);
+            rows = shareRepo.findMostLikedAfter(cursor.key(), cursor.id(), limit);
+        }
+        return toCursorPage(rows, size, last -> ShareCursor.ofLikeCount(last.getLikeCount(), last.getId()));
+    }
+
+    // One extra row tells whether there is a next page
+    private static Limit cursorLimit(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1");
+        }
+        return Limit.of(size + 1);
+    }
+
+    private CursorPage<Share> toCursorPage(List<Share> rows, int size, Function<Share, ShareCursor> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<Share> content = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorPage<>(content, next, hasNext, size);
+    }
+
     @Transactional(readOnly = true)
     public Page<Share> searchByTitle(String title, Pageable pageable) {
         return shareRepo.findByTitleContainingIgnoreCase(title, pageable);
     }
 
+    @Transactional(readOnly = true)
+    public Slice<Share> searchByTitle(String title, Pageable pageable, boolean withTotal) {
+        return withTotal
+                ? searchByTitle(title, pageable)
+                : shareRepo.findSliceByTitleContainingIgnoreCase(title, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<Share> search(String query, Pageable pageable, boolean withTotal) {
+        return search(query, null, null, pageable, withTotal);
+    }
+
+    /**
+     * Full-text search over titles, descriptions and code through the Lucene index, hydrated in
+     * relevance order and optionally filtered by snippet language and owner username. Without a
+     * query the (filtered) shares are listed newest first, so a bare GET /shares?facets=true is the
+     * recent feed. An unfiltered search falls back to the title LIKE query if the index cannot be read.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Share> search(String query, String language, String owner, Pageable pageable, boolean withTotal) {
+        boolean filtered = StringUtils.hasText(language) || StringUtils.hasText(owner);
+        Optional<Long> ownerId = Optional.empty();
+        if (StringUtils.hasText(owner)) {
+            ownerId = userRepository.findIdByUsername(owner.trim());
+            if (ownerId.isEmpty()) {
+                return emptyResult(pageable, withTotal);
+            }
+        }
+        Slice<UUID> ids;
+        try {
+            // Repeated queries are answered from the short-lived id cache
+            ids = searchResults.get(SearchResultCache.key(query, language, ownerId.orElse(null), pageable, withTotal),
+                    key -> searchIndex.search(key.query(), key.language(), key.ownerId(), key.pageable(), key.withTotal()));
+        } catch (UncheckedIOException e) {
+            if (filtered) {
+                throw e;
+            }
+            return searchByTitle(query != null ? query.trim() : "", pageable, withTotal);
+        }
+        return withContent(ids, findAllInOrder(ids.getContent()));
+    }
+
+    /**
+     * Share counts per snippet language for the same query and owner (the language filter itself
+     * is not applied, so every language stays selectable).
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> languageFacets(String query, String owner) {
+        Long ownerId = null;
+        if (StringUtils.hasText(owner)) {
+            Optional<Long> id = userRepository.findIdByUsername(owner.trim());
+            if (id.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            ownerId = id.get();
+        }
+        return searchIndex.languageCounts(query, ownerId);
+    }
+
+    private static <T> Slice<T> emptyResult(Pageable pageable, boolean withTotal) {
+        return withTotal
+                ? new PageImpl<>(Collections.emptyList(), pageable, 0)
+                : new SliceImpl<>(Collections.emptyList(), pageable, false);
+    }
+
+    /**
+     * Substring or regex search inside snippet bodies, answered from the trigram index only.
+     */
+    public CodeSearchResponse searchCode(String query, boolean regex, String language, Pageable pageable) {
+        return searchIndex.searchCode(query, regex, language, pageable);
+    }
+
     @Transactional(readOnly = true)
     public Page<Share> getUserShares(String username, Pageable pageable) {
         User user = userRepository.findByUsername(username)
@@ -120,6 +481,16 @@ public class ShareService {
         return shareRepo.findAllByOwnerId(user.getId(), pageable);
     }
 
+    @Transactional(readOnly = true)
+    public Slice<Share> getUserShares(String username, Pageable pageable, boolean withTotal) {
+        if (withTotal) {
+            return getUserShares(username, pageable);
+        }
+        Long userId = userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+        return shareRepo.findSliceByOwnerId(userId, pageable);
+    }
+
     @Transactional(readOnly = true)
     public boolean hasUserLiked(UUID shareId, String username) {
         if (username == null || username.trim().isEmpty()) {
@@ -133,7 +504,110 @@ public class ShareService {
         }
         
         User user = userOpt.get();
-        return likeRepo.existsByShareIdAndUserId(shareId, user.getId());
+        return likedSets.hasLiked(user.getId(), shareId);
+    }
+
+    /**
+     * Resolves which of the given shares the user has liked, using one user id lookup and at most
+     * one IN (...) query for the ids the user's liked-set filter cannot rule out.
+     */
+    @Transactional(readOnly = true)
+    public Set<UUID> findLikedShareIds(String username, Collection<UUID> shareIds) {
+        if (username == null || username.trim().isEmpty() || shareIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Optional<Long> userId = userRepository.findIdByUsername(username);
+        if (userId.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        return likedSets.likedAmong(userId.get(), shareIds);
+    }
+
+    /**
+     * Same as above for an already resolved user id (null for anonymous requests).
+     */
+    public Set<UUID> findLikedShareIds(Long userId, Collection<UUID> shareIds) {
+        if (userId == null) {
+            return Collections.emptySet();
+        }
+        return likedSets.likedAmong(userId, shareIds);
+    }
+
+    /**
+     * Maps shares to responses with isLiked filled in for the given user
+     * (or false everywhere when username is null).
+     */
+    @Transactional(readOnly = true)
+    public List<ShareResponse> toDtos(List<Share> shares, String username) {
+        return toDtos(shares, findLikedShareIds(username, shares.stream().map(Share::getId).toList()));
+    }
+
+    public List<ShareResponse> toDtos(List<Share> shares, Set<UUID> likedIds) {
+        // One variant-state lookup for the whole page; each toDto then reads the cache
+        imageVariants.readyAmong(shares.stream().flatMap(share -> share.getImageUrls().stream()).toList());
+        return shares.stream()
+                .map(share -> toDto(share, likedIds.contains(share.getId())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<ShareResponse> toDtoPage(Slice<Share> shares, String username) {
+        return withContent(shares, toDtos(shares.getContent(), username));
+    }
+
+    /**
+     * Maps shares to lightweight listing cards. Snippet bodies are never loaded: languages,
+     * count and a bounded preview of the first snippet come from one projection query.
+     */
+    @Transactional(readOnly = true)
+    public List<ShareSummaryResponse> toSummaries(List<Share> shares, String username) {
+        return toSummaries(shares, findLikedShareIds(username, shares.stream().map(Share::getId).toList()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShareSummaryResponse> toSummaries(List<Share> shares, Set<UUID> likedIds) {
+        List<UUID> ids = shares.stream().map(Share::getId).toList();
+
+        Map<UUID, List<ShareRepository.SnippetPreview>> previews = ids.isEmpty()
+                ? Collections.emptyMap()
+                : shareRepo.findSnippetPreviews(ids, SNIPPET_PREVIEW_LENGTH).stream()
+                        .collect(Collectors.groupingBy(ShareRepository.SnippetPreview::getShareId));
+
+        imageVariants.readyAmong(shares.stream()
+                .filter(share -> !share.getImageUrls().isEmpty())
+                .map(share -> share.getImageUrls().get(0))
+                .toList());
+        return shares.stream()
+                .map(share -> toSummary(share,
+                        previews.getOrDefault(share.getId(), Collections.emptyList()),
+                        likedIds.contains(share.getId())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<ShareSummaryResponse> toSummaryPage(Slice<Share> shares, String username) {
+        return withContent(shares, toSummaries(shares.getContent(), username));
+    }
+
+    /**
+     * Replaces the content of a page or slice, keeping totals only when the source had them.
+     */
+    public static <T> Slice<T> withContent(Slice<?> source, List<T> content) {
+        if (source instanceof Page<?> page) {
+            return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+        }
+        return new SliceImpl<>(content, source.getPageable(), source.hasNext());
+    }
+
+    @Transactional(readOnly = true)
+    public CodeSnippet getSnippet(UUID shareId, int index) {
+        List<CodeSnippet> snippets = getShareSnapshot(shareId).codeSnippets();
+        if (index < 0 || index >= snippets.size()) {
+            throw new EntityNotFoundException("Snippet not found");
+        }
+        return snippets.get(index);
     }
 
     @Transactional(readOnly = true)
@@ -143,6 +617,16 @@ public class ShareService {
         return likeRepo.findLikedSharesByUserIdExcludingOwnShares(user.getId(), pageable);
     }
 
+    @Transactional(readOnly = true)
+    public Slice<Share> getUserLikedShares(String username, Pageable pageable, boolean withTotal) {
+        if (withTotal) {
+            return getUserLikedShares(username, pageable);
+        }
+        Long userId = userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+        return likeRepo.findLikedSharesSliceByUserIdExcludingOwnShares(userId, pageable);
+    }
+
     @Transactional
     public void deleteShare(UUID shareId, String username) {
         Share share = shareRepo.findById(shareId)
@@ -156,11 +640,38 @@ public class ShareService {
             throw new SecurityException("You can only delete your own shares");
         }
         
-        // Delete associated likes first
-        likeRepo.deleteByShareId(shareId);
+        // Delete associated likes first. The owner's total loses exactly the rows removed here, which
+        // also covers likes whose like_count delta is still pending on some node
+        int likes = likeRepo.deleteAllByShareIdReturningCount(shareId);
+        if (likes > 0) {
+            userService.subtractTotalLikes(user.getId(), likes);
+        }
+        updateImageReferences(share.getImageUrls(), Collections.emptyList());
         
         // Delete the share
         shareRepo.delete(share);
+        events.publishEvent(new ShareChangedEvent(shareId, ShareChangedEvent.Type.DELETED));
+    }
+
+    /**
+     * Removes everything a user owns or liked before the account is deleted: likes go through the
+     * batch unlike path and shares through {@link #deleteShare}, so like counts, owner totals,
+     * trending scores, rankings, caches, the search index and image references all follow.
+     */
+    @Transactional
+    public void deleteUserContent(String username) {
+        Long userId = resolveUserId(username);
+        List<UUID> liked;
+        do {
+            liked = likeRepo.findShareIdsByUserId(userId, Limit.of(ACCOUNT_UNLIKE_CHUNK_SIZE));
+            if (!liked.isEmpty()) {
+                applyLikeBatch(userId, liked.stream().map(id -> new BatchLikeRequest.Operation(id, false)).toList());
+            }
+        } while (liked.size() == ACCOUNT_UNLIKE_CHUNK_SIZE);
+
+        for (Share share : shareRepo.findByOwnerUsername(username)) {
+            deleteShare(share.getId(), username);
+        }
     }
 
     @Transactional
@@ -179,36 +690,141 @@ public class ShareService {
         // Update the share
         share.setTitle(req.title());
         share.setDescription(req.description());
-        share.setImageUrls(req.imageUrls() != null ? req.imageUrls() : java.util.Collections.emptyList());
+        List<String> imageUrls = toStorageRefs(user.getId(), req.imageUrls(), share.getImageUrls());
+        updateImageReferences(share.getImageUrls(), imageUrls);
+        share.setImageUrls(imageUrls);
         share.setCodeSnippets(req.codeSnippets() != null ? req.codeSnippets() : java.util.Collections.emptyList());
         
-        return shareRepo.save(share);
+        Share saved = shareRepo.save(share);
+        events.publishEvent(new ShareChangedEvent(shareId, ShareChangedEvent.Type.UPDATED));
+        return saved;
+    }
+
+    /**
+     * Clients may send back the signed URLs they were given; only object keys are stored. Besides
+     * the images already on the share, a share may only reference keys the server issued to the
+     * caller: their own direct uploads (confirmed against the bucket first), content-addressed
+     * uploads that are registered as assets, and external http(s) URLs. Anything else could point
+     * reference counting, and with it the orphan cleanup, at arbitrary bucket objects.
+     *
+     * @throws IllegalArgumentException for any other reference
+     */
+    private List<String> toStorageRefs(Long ownerId, List<String> imageUrls, List<String> current) {
+        if (imageUrls == null) {
+            return Collections.emptyList();
+        }
+        List<String> refs = imageUrls.stream().map(s3Service::toStorageRef).toList();
+        for (String ref : refs) {
+            if (current.contains(ref)) {
+                continue;
+            }
+            String key = s3Service.toKey(ref);
+            if (key == null) {
+                if (ref == null || !(ref.startsWith("http://") || ref.startsWith("https://"))) {
+                    throw new IllegalArgumentException("Invalid image URL: " + ref);
+                }
+            } else if (s3Service.isDirectUpload(key)) {
+                s3Service.confirmUpload(ownerId, key);
+            } else if (!s3Service.isContentKey(key) || !imageAssets.existsById(key)) {
+                throw new IllegalArgumentException("Image was not uploaded through this service: " + ref);
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Moves image_assets reference counts from the old image list to the new one, in the share
+     * transaction. External URLs are not counted.
+     */
+    private void updateImageReferences(List<String> before, List<String> after) {
+        Map<String, Integer> delta = new HashMap<>();
+        after.stream().map(s3Service::toKey).filter(Objects::nonNull).forEach(key -> delta.merge(key, 1, Integer::sum));
+        before.stream().map(s3Service::toKey).filter(Objects::nonNull).forEach(key -> delta.merge(key, -1, Integer::sum));
+        delta.forEach((key, count) -> {
+            if (count > 0) {
+                imageAssets.addReferences(key, count);
+            } else if (count < 0) {
+                imageAssets.removeReferences(key, -count);
+            }
+        });
+    }
+
+    /**
+     * Persisted like count plus the delta still buffered in {@link LikeCounterService}.
+     */
+    public long likeCountOf(Share share) {
+        return likeCounters.effectiveLikeCount(share.getId(), share.getLikeCount());
+    }
+
+    public long likeCountOf(UUID shareId, long persistedLikeCount) {
+        return likeCounters.effectiveLikeCount(shareId, persistedLikeCount);
+    }
+
+    private ShareSummaryResponse toSummary(Share share, List<ShareRepository.SnippetPreview> snippets,
+                                                  boolean isLiked) {
+        String description = share.getDescription();
+        String descriptionExcerpt = description != null && description.length() > DESCRIPTION_EXCERPT_LENGTH
+                ? description.substring(0, DESCRIPTION_EXCERPT_LENGTH) + "…"
+                : description;
+        ShareRepository.SnippetPreview first = snippets.isEmpty() ? null : snippets.get(0);
+
+        return new ShareSummaryResponse(
+                share.getId().toString(),
+                share.getOwner().getUsername(),
+                share.getOwner().getTitle() != null ? share.getOwner().getTitle() : "Newbie Coder",
+                share.getTitle(),
+                descriptionExcerpt,
+                share.getImageUrls().isEmpty() ? null : imageVariants.thumbnailUrl(share.getImageUrls().get(0)),
+                snippets.stream().map(ShareRepository.SnippetPreview::getLanguage).distinct().toList(),
+                snippets.size(),
+                first != null ? first.getPreview() : null,
+                first != null && first.getContentLength() > SNIPPET_PREVIEW_LENGTH,
+                likeCountOf(share),
+                isLiked
+        );
+    }
+
+    public ShareResponse toDto(ShareSnapshot share, String ownerTitle, boolean isLiked) {
+        return new ShareResponse(
+                share.id().toString(),
+                share.ownerUsername(),
+                ownerTitle,
+                share.title(),
+                share.description(),
+                s3Service.signedUrls(share.imageUrls()),
+                imageVariants.images(share.imageUrls()),
+                share.codeSnippets(),
+                likeCounters.effectiveLikeCount(share.id(), share.likeCount()),
+                isLiked
+        );
     }
 
-    public static ShareResponse toDto(Share share) {
+    public ShareResponse toDto(Share share) {
         return new ShareResponse(
                 share.getId().toString(),
                 share.getOwner().getUsername(),
                 share.getOwner().getTitle() != null ? share.getOwner().getTitle() : "Newbie Coder",
                 share.getTitle(),
                 share.getDescription(),
-                share.getImageUrls(),
+                s3Service.signedUrls(share.getImageUrls()),
+                imageVariants.images(share.getImageUrls()),
                 share.getCodeSnippets(),
-                share.getLikeCount(),
+                likeCountOf(share),
                 false // Default to false, will be set by controller
         );
     }
 
-    public static ShareResponse toDto(Share share, boolean isLiked) {
+    public ShareResponse toDto(Share share, boolean isLiked) {
         return new ShareResponse(
                 share.getId().toString(),
                 share.getOwner().getUsername(),
                 share.getOwner().getTitle() != null ? share.getOwner().getTitle() : "Newbie Coder",
                 share.getTitle(),
                 share.getDescription(),
-                share.getImageUrls(),
+                s3Service.signedUrls(share.getImageUrls()),
+                imageVariants.images(share.getImageUrls()),
                 share.getCodeSnippets(),
-                share.getLikeCount(),
+                likeCountOf(share),
                 isLiked
         );
     }
@@ -0,0 +1,63 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.entity.CodeSnippet;
+import com.tpl.tupalle.entity.Share;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Detached, fully hydrated copy of a share as kept in {@link ShareCache}. Holds no Hibernate
+ * proxies or lazy collections, so it can be read outside a session and shared between requests.
+ * The owner's title is not part of it: it changes with likes on the owner's other shares, which
+ * do not invalidate this one, so it is resolved when the response is built.
+ */
+public record ShareSnapshot(
+        UUID id,
+        String ownerUsername,
+        String title,
+        String description,
+        List<String> imageUrls,
+        List<CodeSnippet> codeSnippets,
+        long likeCount,
+        Instant updatedAt
+) {
+
+    public static ShareSnapshot of(Share share) {
+        return new ShareSnapshot(
+                share.getId(),
+                share.getOwner().getUsername(),
+                share.getTitle(),
+                share.getDescription(),
+                List.copyOf(share.getImageUrls()),
+                share.getCodeSnippets().stream().map(ShareSnapshot::copy).toList(),
+                share.getLikeCount(),
+                share.getUpdatedAt()
+        );
+    }
+
+    // Rough retained size in bytes, used by the cache weigher
+    public int estimatedSize() {
+        long chars = length(ownerUsername) + length(title) + length(description);
+        for (String url : imageUrls) {
+            chars += length(url);
+        }
+        for (CodeSnippet snippet : codeSnippets) {
+            chars += length(snippet.getLanguage()) + length(snippet.getFilename()) + length(snippet.getContent());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, 256 + 2 * chars + 64L * (imageUrls.size() + codeSnippets.size()));
+    }
+
+    private static CodeSnippet copy(CodeSnippet source) {
+        CodeSnippet copy = new CodeSnippet();
+        copy.setLanguage(source.getLanguage());
+        copy.setFilename(source.getFilename());
+        copy.setContent(source.getContent());
+        return copy;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
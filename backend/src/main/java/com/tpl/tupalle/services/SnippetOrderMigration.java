@@ -0,0 +1,74 @@
+package com.tpl.tupalle.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off numbering of share_codes rows stored before snippets had an order column. Hibernate's
+ * schema update adds the column as NOT NULL, so MySQL fills those rows with 0 (or leaves them null
+ * where the column was added by hand); a share is renumbered whenever its indexes are not distinct,
+ * since Hibernate would otherwise load only one snippet per index and drop the rest on the next
+ * save. Each share's rows are rewritten in their stored (insertion) order. Runs once the schema is
+ * updated but before the web server starts.
+ */
+@Component
+@Slf4j
+public class SnippetOrderMigration implements SmartInitializingSingleton {
+
+    static final String TABLE = "share_codes";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+
+    public SnippetOrderMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            int renumbered = migrate(TABLE);
+            if (renumbered > 0) {
+                log.info("Numbered code snippets of {} shares", renumbered);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Snippet order migration failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of shares renumbered
+     */
+    int migrate(String table) {
+        // COUNT(DISTINCT) skips nulls, so this also matches shares with unnumbered rows
+        List<byte[]> shareIds = jdbcTemplate.queryForList(
+                "SELECT share_id FROM " + table + " GROUP BY share_id " +
+                "HAVING COUNT(*) <> COUNT(DISTINCT snippet_index)", byte[].class);
+        for (byte[] shareId : shareIds) {
+            tx.executeWithoutResult(status -> renumber(table, shareId));
+        }
+        return shareIds.size();
+    }
+
+    private void renumber(String table, byte[] shareId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT language, filename, content FROM " + table + " WHERE share_id = ? FOR UPDATE", shareId);
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            args.add(new Object[]{shareId, i, row.get("language"), row.get("filename"), row.get("content")});
+        }
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE share_id = ?", shareId);
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (share_id, snippet_index, language, filename, content) " +
+                "VALUES (?, ?, ?, ?, ?)", args);
+    }
+}
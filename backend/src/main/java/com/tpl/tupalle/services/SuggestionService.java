@@ -0,0 +1,152 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.entity.DTO.SuggestionResponse;
+import com.tpl.tupalle.events.ShareChangedEvent;
+import com.tpl.tupalle.events.ShareLikeChangedEvent;
+import com.tpl.tupalle.events.UserDeletedEvent;
+import com.tpl.tupalle.repositories.ShareRepository;
+import com.tpl.tupalle.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Search-box autocomplete over share titles (weighted by likeCount) and usernames (weighted by
+ * total likes), served from an in-memory {@link SuggestionTrie}. Built on startup, kept current
+ * from share and like events, and rebuilt periodically to pick up username changes, new users and
+ * exact top lists.
+ * <p>
+ * Only the most-liked {@code max-titles} shares and {@code max-users} users are indexed, which
+ * bounds the trie regardless of table size: with the defaults it stays in the tens of megabytes,
+ * twice that while a rebuild builds the replacement next to the live trie.
+ */
+@Service
+@Slf4j
+public class SuggestionService {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    private static final String SHARE = "share";
+    private static final String USER = "user";
+    // Placeholder accounts of Google sign-ups that have not picked a username yet
+    private static final String PENDING_USERNAME_PREFIX = "temp_";
+
+    private final ShareRepository shareRepo;
+    private final UserRepository userRepository;
+    private final int maxTitles;
+    private final int maxUsers;
+    private volatile SuggestionTrie trie;
+
+    public SuggestionService(ShareRepository shareRepo, UserRepository userRepository,
+                             @Value("${app.suggest.max-titles:50000}") int maxTitles,
+                             @Value("${app.suggest.max-users:10000}") int maxUsers) {
+        this.shareRepo = shareRepo;
+        this.userRepository = userRepository;
+        this.maxTitles = maxTitles;
+        this.maxUsers = maxUsers;
+        this.trie = newTrie();
+    }
+
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        return trie.lookup(prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS)).stream()
+                .map(entry -> new SuggestionResponse(entry.type(), entry.text(), entry.id(), entry.weight()))
+                .toList();
+    }
+
+    @TransactionalEventListener
+    public void onShareChanged(ShareChangedEvent event) {
+        if (event.type() == ShareChangedEvent.Type.DELETED) {
+            synchronized (this) {
+                trie.remove(SHARE + ":" + event.shareId());
+            }
+            return;
+        }
+        shareRepo.findTitleById(event.shareId()).ifPresent(row -> {
+            synchronized (this) {
+                trie.put(shareEntry(row.getId(), row.getTitle(), row.getLikeCount()));
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public synchronized void onLikeChanged(ShareLikeChangedEvent event) {
+        reweigh(SHARE + ":" + event.shareId(), event.delta());
+        reweigh(USER + ":" + event.ownerId(), event.delta());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onUserDeleted(UserDeletedEvent event) {
+        trie.remove(USER + ":" + event.userId());
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Builds a fresh trie off to the side and swaps it in. Events that arrive while the build is
+     * running are applied to the old trie only; the next rebuild picks them up.
+     */
+    @Scheduled(initialDelayString = "${app.suggest.rebuild-interval-ms:600000}",
+               fixedDelayString = "${app.suggest.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        try {
+            SuggestionTrie fresh = newTrie();
+            int titles = 0;
+            List<ShareRepository.ShareTitle> chunk = shareRepo.findMostLikedTitles(
+                    Limit.of(Math.min(REBUILD_CHUNK_SIZE, maxTitles)));
+            while (!chunk.isEmpty()) {
+                for (ShareRepository.ShareTitle row : chunk) {
+                    fresh.put(shareEntry(row.getId(), row.getTitle(), row.getLikeCount()));
+                }
+                titles += chunk.size();
+                int next = Math.min(REBUILD_CHUNK_SIZE, maxTitles - titles);
+                if (chunk.size() < REBUILD_CHUNK_SIZE || next == 0) {
+                    break;
+                }
+                ShareRepository.ShareTitle last = chunk.get(chunk.size() - 1);
+                chunk = shareRepo.findMostLikedTitlesAfter(last.getLikeCount(), last.getId(), Limit.of(next));
+            }
+
+            for (UserRepository.UsernameLikes row : userRepository.findMostLikedUsernames(Limit.of(maxUsers))) {
+                if (!row.getUsername().startsWith(PENDING_USERNAME_PREFIX)) {
+                    fresh.put(new SuggestionTrie.Entry(USER + ":" + row.getId(), USER, row.getUsername(),
+                            row.getUsername(), row.getTotalLikes()));
+                }
+            }
+            synchronized (this) {
+                trie = fresh;
+            }
+            log.info("Rebuilt search suggestions with {} entries", fresh.size());
+        } catch (RuntimeException e) {
+            log.warn("Search suggestion rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    private void reweigh(String key, int delta) {
+        SuggestionTrie.Entry entry = trie.get(key);
+        if (entry != null) {
+            trie.put(new SuggestionTrie.Entry(key, entry.type(), entry.text(), entry.id(),
+                    Math.max(0, entry.weight() + delta)));
+        }
+    }
+
+    private SuggestionTrie newTrie() {
+        return new SuggestionTrie(MAX_SUGGESTIONS, maxTitles + maxUsers);
+    }
+
+    private static SuggestionTrie.Entry shareEntry(UUID id, String title, long likeCount) {
+        return new SuggestionTrie.Entry(SHARE + ":" + id, SHARE, title, id.toString(), likeCount);
+    }
+}
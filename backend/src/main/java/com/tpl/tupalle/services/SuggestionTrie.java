@@ -0,0 +1,270 @@
+package com.tpl.tupalle.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Path-compressed (radix) prefix trie whose nodes cache the best-weighted entries below them, so a
+ * lookup is a walk down the prefix plus a copy of at most {@code limit} entries. Each node holds a
+ * whole edge label rather than one character, so there is one node per term plus one per branch
+ * point, and every prefix that ends inside an edge is served by the node below it. Children and
+ * top lists are copy-on-write: lookups run lock-free while writes are serialized by the owner.
+ *
+ * <p>Each node keeps twice the served size so removals and weight decreases rarely leave a
+ * prefix short of candidates; the periodic rebuild restores exact top lists. The trie holds at
+ * most {@code maxEntries} entries; new keys beyond that wait for the next rebuild.
+ */
+final class SuggestionTrie {
+
+    record Entry(String key, String type, String text, String id, long weight) {}
+
+    private static final Comparator<Entry> BY_WEIGHT = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparing(Entry::text);
+    // Prefixes longer than this are matched against the truncated key
+    static final int MAX_KEY_LENGTH = 32;
+    private static final int MAX_WORD_STARTS = 8;
+
+    private final Node root = new Node("");
+    private final int keep;
+    private final int maxEntries;
+    // Entry key -> current entry, used to find the old paths on update/removal
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    SuggestionTrie(int served, int maxEntries) {
+        this.keep = served * 2;
+        this.maxEntries = maxEntries;
+    }
+
+    List<Entry> lookup(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Node node = find(truncate(normalized));
+        if (node == null) {
+            return List.of();
+        }
+        Entry[] top = node.top;
+        List<Entry> result = new ArrayList<>(Math.min(limit, top.length));
+        for (Entry entry : top) {
+            // A truncated key can over-match longer prefixes
+            if (normalized.length() <= MAX_KEY_LENGTH || matches(entry.text(), normalized)) {
+                result.add(entry);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Callers serialize writes
+    void put(Entry entry) {
+        Entry previous = entries.get(entry.key());
+        if (previous == null && entries.size() >= maxEntries) {
+            return;
+        }
+        entries.put(entry.key(), entry);
+        if (previous != null && !previous.text().equals(entry.text())) {
+            for (String term : terms(previous)) {
+                remove(term, previous);
+            }
+        }
+        for (String term : terms(entry)) {
+            insert(term, entry);
+        }
+    }
+
+    void remove(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            for (String term : terms(previous)) {
+                remove(term, previous);
+            }
+        }
+    }
+
+    Entry get(String key) {
+        return entries.get(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // Topmost node whose path starts with the key; the key may end inside that node's label
+    private Node find(String key) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            node = node.child(key.charAt(depth));
+            if (node == null) {
+                return null;
+            }
+            int length = Math.min(node.label.length(), key.length() - depth);
+            if (!key.regionMatches(depth, node.label, 0, length)) {
+                return null;
+            }
+            depth += length;
+        }
+        return node;
+    }
+
+    private void insert(String term, Entry entry) {
+        Node node = root;
+        int depth = 0;
+        while (depth < term.length()) {
+            Node child = node.child(term.charAt(depth));
+            if (child == null) {
+                Node leaf = new Node(term.substring(depth));
+                leaf.offer(entry, keep);
+                node.putChild(leaf);
+                return;
+            }
+            int common = commonPrefixLength(child.label, term, depth);
+            if (common < child.label.length()) {
+                child = node.split(child, common);
+            }
+            child.offer(entry, keep);
+            depth += common;
+            node = child;
+        }
+    }
+
+    private void remove(String term, Entry entry) {
+        Node node = root;
+        int depth = 0;
+        while (depth < term.length()) {
+            node = node.child(term.charAt(depth));
+            if (node == null || !term.startsWith(node.label, depth)) {
+                return;
+            }
+            node.drop(entry.key());
+            depth += node.label.length();
+        }
+    }
+
+    private static int commonPrefixLength(String label, String term, int from) {
+        int max = Math.min(label.length(), term.length() - from);
+        int i = 0;
+        while (i < max && label.charAt(i) == term.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // Usernames are matched from the start; titles also from each word start ("spring" finds "Intro to Spring")
+    private static List<String> terms(Entry entry) {
+        String text = normalize(entry.text());
+        List<String> terms = new ArrayList<>();
+        if (text.isEmpty()) {
+            return terms;
+        }
+        terms.add(truncate(text));
+        if (!"user".equals(entry.type())) {
+            for (int i = text.indexOf(' '); i >= 0 && terms.size() < MAX_WORD_STARTS; i = text.indexOf(' ', i + 1)) {
+                if (i + 1 < text.length()) {
+                    terms.add(truncate(text.substring(i + 1)));
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static boolean matches(String text, String normalizedPrefix) {
+        String normalized = normalize(text);
+        return normalized.startsWith(normalizedPrefix) || normalized.contains(" " + normalizedPrefix);
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String term) {
+        return term.length() > MAX_KEY_LENGTH ? term.substring(0, MAX_KEY_LENGTH) : term;
+    }
+
+    private static final class Node {
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        // Edge from the parent; never changes once the node is reachable, a split replaces the node
+        private final String label;
+        private volatile Children children = Children.EMPTY;
+        private volatile Entry[] top = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            Children current = children;
+            int i = Arrays.binarySearch(current.keys, c);
+            return i >= 0 ? current.nodes[i] : null;
+        }
+
+        // Adds a child or replaces the one starting with the same character
+        void putChild(Node node) {
+            Children current = children;
+            char c = node.label.charAt(0);
+            int i = Arrays.binarySearch(current.keys, c);
+            if (i >= 0) {
+                Node[] nodes = current.nodes.clone();
+                nodes[i] = node;
+                children = new Children(current.keys, nodes);
+                return;
+            }
+            int at = -i - 1;
+            char[] keys = new char[current.keys.length + 1];
+            Node[] nodes = new Node[keys.length];
+            System.arraycopy(current.keys, 0, keys, 0, at);
+            System.arraycopy(current.nodes, 0, nodes, 0, at);
+            keys[at] = c;
+            nodes[at] = node;
+            System.arraycopy(current.keys, at, keys, at + 1, current.keys.length - at);
+            System.arraycopy(current.nodes, at, nodes, at + 1, current.nodes.length - at);
+            children = new Children(keys, nodes);
+        }
+
+        /**
+         * Splits the child's label after {@code length} characters. Both halves are new nodes built
+         * before the swap, so a concurrent lookup sees either the old child or the complete split.
+         */
+        Node split(Node child, int length) {
+            Node tail = new Node(child.label.substring(length));
+            tail.children = child.children;
+            tail.top = child.top;
+            Node head = new Node(child.label.substring(0, length));
+            head.children = new Children(new char[]{tail.label.charAt(0)}, new Node[]{tail});
+            head.top = child.top;
+            putChild(head);
+            return head;
+        }
+
+        // Inserts or re-ranks the entry, keeping at most `keep` of the best
+        void offer(Entry entry, int keep) {
+            List<Entry> list = new ArrayList<>(top.length + 1);
+            for (Entry existing : top) {
+                if (!existing.key().equals(entry.key())) {
+                    list.add(existing);
+                }
+            }
+            list.add(entry);
+            list.sort(BY_WEIGHT);
+            top = list.subList(0, Math.min(keep, list.size())).toArray(NO_ENTRIES);
+        }
+
+        void drop(String key) {
+            Entry[] current = top;
+            top = Arrays.stream(current).filter(e -> !e.key().equals(key)).toArray(Entry[]::new);
+        }
+    }
+
+    private record Children(char[] keys, Node[] nodes) {
+        static final Children EMPTY = new Children(new char[0], new Node[0]);
+    }
+}
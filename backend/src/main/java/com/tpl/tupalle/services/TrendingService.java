@@ -0,0 +1,129 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.entity.TrendingEpoch;
+import com.tpl.tupalle.events.ShareChangedEvent;
+import com.tpl.tupalle.repositories.ShareLikeBatchRepository;
+import com.tpl.tupalle.repositories.ShareRepository;
+import com.tpl.tupalle.repositories.TrendingEpochRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maintains shares.trending_score, an exponentially decayed like count. Each like adds a weight
+ * that doubles every half-life relative to an epoch, which is equivalent to every older like
+ * decaying by half per half-life. Like weights are added by {@link LikeCounterService}'s batched
+ * flush rather than inside the like transaction, so likes never queue on the share row; a like
+ * counts from the flush a few hundred milliseconds later, which shifts its weight by a negligible
+ * fraction. The trending feed is a plain index range scan.
+ * <p>
+ * Every row records the epoch its score is relative to. The rescaling job only moves the shared
+ * epoch and then brings rows over in small chunks, each in its own transaction; a like moves its
+ * row over on the spot. While a rescale runs, rows on the old and new epoch differ by at most one
+ * interval's decay.
+ */
+@Service
+@Slf4j
+public class TrendingService {
+
+    // Scores that decay below this are reset to zero by the rescaling job
+    private static final double SCORE_FLOOR = 1e-6;
+    private static final int RESCALE_CHUNK_SIZE = 500;
+
+    private final ShareRepository shareRepo;
+    private final ShareLikeBatchRepository batchRepository;
+    private final TrendingEpochRepository epochRepo;
+    private final TransactionTemplate tx;
+    private final double halfLifeSeconds;
+
+    public TrendingService(ShareRepository shareRepo, ShareLikeBatchRepository batchRepository,
+                           TrendingEpochRepository epochRepo, PlatformTransactionManager transactionManager,
+                           @Value("${app.trending.half-life-hours:24}") double halfLifeHours) {
+        this.shareRepo = shareRepo;
+        this.batchRepository = batchRepository;
+        this.epochRepo = epochRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.halfLifeSeconds = halfLifeHours * 3600;
+    }
+
+    @PostConstruct
+    void adoptSharedEpoch() {
+        Integer adopted = tx.execute(status -> shareRepo.adoptTrendingEpoch());
+        if (adopted != null && adopted > 0) {
+            log.info("Moved {} trending scores onto per-row epochs", adopted);
+        }
+    }
+
+    /**
+     * Adds the weight of committed likes (count per share) as of now. Called by the like counter
+     * flush inside its batch transaction. Unlikes are handled by removeLikes, which has to run
+     * while the like rows still exist.
+     */
+    public void addLikeWeights(Map<UUID, Long> likes) {
+        batchRepository.addTrendingWeights(likes, Instant.now().getEpochSecond(), halfLifeSeconds);
+    }
+
+    // A new share starts with the weight of one like so it can surface before anyone reacts
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onShareChanged(ShareChangedEvent event) {
+        if (event.type() == ShareChangedEvent.Type.CREATED) {
+            shareRepo.addTrendingWeight(event.shareId(), Instant.now().getEpochSecond(), halfLifeSeconds);
+        }
+    }
+
+    /**
+     * Subtracts the weight each of the user's likes on these shares added when it was made. Must be
+     * called in the unlike transaction, before the like rows are deleted.
+     */
+    public void removeLikes(Long userId, Collection<UUID> shareIds) {
+        shareRepo.removeTrendingWeights(userId, shareIds, halfLifeSeconds);
+    }
+
+    /**
+     * Moves the epoch to now and rescales every score onto it by the elapsed decay, keeping weights
+     * of new likes close to 1 and preventing overflow of the exponential term.
+     */
+    @Scheduled(fixedDelayString = "${app.trending.rescale-interval-ms:3600000}")
+    public void rescale() {
+        Long epoch = tx.execute(status -> {
+            TrendingEpoch current = epochRepo.lockCurrent().orElse(null);
+            if (current == null) {
+                return null;
+            }
+            current.setEpochSeconds(Instant.now().getEpochSecond());
+            epochRepo.save(current);
+            return current.getEpochSeconds();
+        });
+        if (epoch == null) {
+            return;
+        }
+
+        int rescaled = 0;
+        UUID after = new UUID(0, 0);
+        List<UUID> chunk;
+        do {
+            chunk = shareRepo.findTrendingIdsAfter(after, Limit.of(RESCALE_CHUNK_SIZE));
+            if (!chunk.isEmpty()) {
+                List<UUID> ids = chunk;
+                Integer updated = tx.execute(status ->
+                        shareRepo.rescaleTrendingScores(ids, epoch, halfLifeSeconds, SCORE_FLOOR));
+                rescaled += updated != null ? updated : 0;
+                after = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == RESCALE_CHUNK_SIZE);
+        log.info("Rescaled {} trending scores to epoch {}", rescaled, epoch);
+    }
+}
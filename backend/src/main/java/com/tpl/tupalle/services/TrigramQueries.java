@@ -0,0 +1,277 @@
+package com.tpl.tupalle.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns code search input into the trigrams every match must contain. For regular expressions only
+ * literal runs that are mandatory in every match are used; anything the extractor cannot prove
+ * required (alternation, optional atoms, classes) simply breaks the run, so the trigram query
+ * over-approximates and the regex check afterwards decides.
+ */
+final class TrigramQueries {
+
+    private TrigramQueries() {
+    }
+
+    /**
+     * Grams built the way the index builds them: NGramTokenizer counts code points, not chars, and
+     * LowerCaseFilter lower-cases each code point on its own (String.toLowerCase would turn 'İ' into
+     * two code points, for one).
+     */
+    static Set<String> trigrams(String literal) {
+        Set<String> grams = new LinkedHashSet<>();
+        int[] codePoints = literal.codePoints().map(Character::toLowerCase).toArray();
+        for (int i = 0; i + 3 <= codePoints.length; i++) {
+            grams.add(new String(codePoints, i, 3));
+        }
+        return grams;
+    }
+
+    static Set<String> trigrams(List<String> literals) {
+        Set<String> grams = new LinkedHashSet<>();
+        literals.forEach(literal -> grams.addAll(trigrams(literal)));
+        return grams;
+    }
+
+    /**
+     * Literal substrings that every match of the regex contains (possibly none).
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> out = new ArrayList<>();
+        // Inline flags such as (?x) change how the rest of the pattern reads; not worth modelling
+        if (hasInlineFlags(regex) || !collect(regex, 0, regex.length(), out)) {
+            return List.of();
+        }
+        return out.stream().filter(run -> run.length() >= 3).toList();
+    }
+
+    // Returns false when the range is a top-level alternation, i.e. nothing in it is required
+    private static boolean collect(String p, int from, int to, List<String> out) {
+        List<String> runs = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int i = from;
+        while (i < to) {
+            char c = p.charAt(i);
+            if (c == '|') {
+                return false;
+            }
+            if (c == '\\' && i + 1 < to) {
+                char next = p.charAt(i + 1);
+                i += 2;
+                if (next == 'Q') {
+                    // \Q...\E quotes a literal run; a quantifier after \E applies to its last character
+                    int end = quoteEnd(p, i, to);
+                    String quoted = p.substring(i, end);
+                    i = Math.min(end + 2, to);
+                    if (!quoted.isEmpty()) {
+                        run.append(quoted, 0, quoted.length() - 1);
+                        i = literal(p, i, to, quoted.charAt(quoted.length() - 1), run, runs);
+                    }
+                } else if (Character.isLetterOrDigit(next)) {
+                    // \d, \w, \b, \x41, \k<name>, back-references...: not a literal
+                    flush(run, runs);
+                    i = skipQuantifier(p, skipEscapeOperand(p, i, to, next), to);
+                } else {
+                    i = literal(p, i, to, next, run, runs);
+                }
+            } else if (c == '[') {
+                flush(run, runs);
+                i = skipQuantifier(p, skipClass(p, i, to), to);
+            } else if (c == '(') {
+                flush(run, runs);
+                int close = matchingParen(p, i, to);
+                int after = close + 1;
+                boolean optional = isOptional(p, after, to);
+                int contentStart = i + 1;
+                boolean skip = optional;
+                if (p.startsWith("?:", contentStart)) {
+                    contentStart += 2;
+                } else if (contentStart < close && p.charAt(contentStart) == '?') {
+                    // Lookarounds and inline flags do not consume required text
+                    skip = true;
+                }
+                if (!skip) {
+                    List<String> inner = new ArrayList<>();
+                    if (collect(p, contentStart, close, inner)) {
+                        runs.addAll(inner);
+                    }
+                }
+                i = skipQuantifier(p, after, to);
+            } else if (c == '.' || c == '^' || c == '$' || c == ')') {
+                flush(run, runs);
+                i = skipQuantifier(p, i + 1, to);
+            } else if (c == '*' || c == '+' || c == '?' || c == '{') {
+                // Stray quantifier; the pattern compiler will reject it
+                flush(run, runs);
+                i++;
+            } else {
+                i = literal(p, i + 1, to, c, run, runs);
+            }
+        }
+        flush(run, runs);
+        out.addAll(runs);
+        return true;
+    }
+
+    // Adds a literal character, honouring a quantifier that follows it
+    private static int literal(String p, int i, int to, char c, StringBuilder run, List<String> runs) {
+        if (isOptional(p, i, to)) {
+            flush(run, runs);
+            return skipQuantifier(p, i, to);
+        }
+        run.append(c);
+        if (i < to && (p.charAt(i) == '+' || p.charAt(i) == '{')) {
+            // Repeated at least once: the run ends here but the next run starts with the same char
+            flush(run, runs);
+            run.append(c);
+            return skipQuantifier(p, i, to);
+        }
+        return i;
+    }
+
+    // Index just past the operand of a letter or digit escape; i is the index after the escape letter
+    private static int skipEscapeOperand(String p, int i, int to, char escape) {
+        switch (escape) {
+            case 'x':
+                return i < to && p.charAt(i) == '{' ? closing(p, i, '}', to) : Math.min(i + 2, to);
+            case 'u':
+                return Math.min(i + 4, to);
+            case 'c':
+                return Math.min(i + 1, to);
+            case '0': {
+                // \0n, \0nn, or \0mnn with m <= 3
+                int max = i < to && p.charAt(i) <= '3' ? 3 : 2;
+                int j = i;
+                while (j < to && j - i < max && p.charAt(j) >= '0' && p.charAt(j) <= '7') {
+                    j++;
+                }
+                return j;
+            }
+            case 'k':
+                return i < to && p.charAt(i) == '<' ? closing(p, i, '>', to) : i;
+            case 'p', 'P', 'N':
+                if (i < to && p.charAt(i) == '{') {
+                    return closing(p, i, '}', to);
+                }
+                return escape == 'N' ? i : Math.min(i + 1, to);
+            default:
+                if (Character.isDigit(escape)) {
+                    // Back-reference; the compiler may stop earlier, which only loses literal text
+                    int j = i;
+                    while (j < to && Character.isDigit(p.charAt(j))) {
+                        j++;
+                    }
+                    return j;
+                }
+                return i;
+        }
+    }
+
+    private static int closing(String p, int i, char close, int to) {
+        int at = p.indexOf(close, i);
+        return at < 0 || at >= to ? to : at + 1;
+    }
+
+    // Start of the \E that ends a quote whose text begins at i, or the end of the range
+    private static int quoteEnd(String p, int i, int to) {
+        int end = p.indexOf("\\E", i);
+        return end < 0 || end >= to ? to : end;
+    }
+
+    private static boolean hasInlineFlags(String p) {
+        int i = 0;
+        while (i < p.length()) {
+            char c = p.charAt(i);
+            if (c == '\\') {
+                i = i + 1 < p.length() && p.charAt(i + 1) == 'Q' ? quoteEnd(p, i + 2, p.length()) + 2 : i + 2;
+            } else if (c == '[') {
+                i = skipClass(p, i, p.length());
+            } else if (c == '(' && p.startsWith("?", i + 1) && i + 2 < p.length()
+                    && (Character.isLetter(p.charAt(i + 2)) || p.charAt(i + 2) == '-')) {
+                return true;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOptional(String p, int i, int to) {
+        if (i >= to) {
+            return false;
+        }
+        char q = p.charAt(i);
+        return q == '?' || q == '*' || (q == '{' && i + 1 < to && p.charAt(i + 1) == '0');
+    }
+
+    private static int skipQuantifier(String p, int i, int to) {
+        if (i >= to) {
+            return i;
+        }
+        char q = p.charAt(i);
+        if (q == '{') {
+            int close = p.indexOf('}', i);
+            i = close < 0 || close >= to ? to : close + 1;
+        } else if (q == '?' || q == '*' || q == '+') {
+            i++;
+        } else {
+            return i;
+        }
+        // Lazy or possessive modifier
+        if (i < to && (p.charAt(i) == '?' || p.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipClass(String p, int i, int to) {
+        int j = i + 1;
+        if (j < to && p.charAt(j) == '^') {
+            j++;
+        }
+        if (j < to && p.charAt(j) == ']') {
+            j++;
+        }
+        while (j < to && p.charAt(j) != ']') {
+            if (p.startsWith("\\Q", j)) {
+                j = quoteEnd(p, j + 2, to) + 2;
+            } else {
+                j += p.charAt(j) == '\\' ? 2 : 1;
+            }
+        }
+        return Math.min(j + 1, to);
+    }
+
+    private static int matchingParen(String p, int i, int to) {
+        int depth = 0;
+        int j = i;
+        while (j < to) {
+            char c = p.charAt(j);
+            if (c == '\\') {
+                j = j + 1 < to && p.charAt(j + 1) == 'Q' ? quoteEnd(p, j + 2, to) + 2 : j + 2;
+                continue;
+            }
+            if (c == '[') {
+                j = skipClass(p, j, to);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return j;
+            }
+            j++;
+        }
+        return to - 1;
+    }
+
+    private static void flush(StringBuilder run, List<String> runs) {
+        if (!run.isEmpty()) {
+            runs.add(run.toString());
+            run.setLength(0);
+        }
+    }
+}
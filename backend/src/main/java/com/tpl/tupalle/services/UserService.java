@@ -1,21 +1,56 @@
 package com.tpl.tupalle.services;
 
 import com.tpl.tupalle.entity.User;
-import com.tpl.tupalle.entity.Share;
 import com.tpl.tupalle.repositories.UserRepository;
-import com.tpl.tupalle.repositories.ShareRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class UserService {
     
+    static final long CODE_MASTER_LIKES = 50;
+    static final long CODE_ENTHUSIAST_LIKES = 5;
+    static final String CODE_MASTER = "Code Master";
+    static final String CODE_ENTHUSIAST = "Code Enthusiast";
+    static final String NEWBIE_CODER = "Newbie Coder";
+    
+    private static final String RECONCILE_LOCK = "tupalle:users:reconcile";
+    // Long enough to cover a rolling deploy, so only the first node to start reconciles
+    private static final Duration RECONCILE_LOCK_TTL = Duration.ofMinutes(30);
+    private static final int RECONCILE_CHUNK_SIZE = 500;
+    
     private final UserRepository userRepository;
-    private final ShareRepository shareRepository;
+    private final StringRedisTemplate redis;
+    private final TaskScheduler scheduler;
+    private final TransactionTemplate tx;
+    private final Duration settleDelay;
+    
+    public UserService(UserRepository userRepository, StringRedisTemplate redis, TaskScheduler scheduler,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${app.likes.reconcile-settle:5s}") Duration settleDelay) {
+        this.userRepository = userRepository;
+        this.redis = redis;
+        this.scheduler = scheduler;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.settleDelay = settleDelay;
+    }
     
     public Optional<User> findByUsername(String username) {
         return userRepository.findByUsername(username);
@@ -25,58 +60,113 @@ public class UserService {
         return userRepository.findById(id);
     }
     
+    /**
+     * Adds the summed like deltas of each owner to users.total_likes and re-derives the title, one
+     * update of each users row per call. Called from the {@link LikeCounterService} flush, so likes
+     * on a viral share no longer queue up on the owner's row one at a time.
+     */
+    @Transactional
+    public void addToTotalLikes(Map<Long, Long> deltas) {
+        deltas.forEach((userId, delta) -> {
+            userRepository.addToTotalLikes(userId, delta);
+            updateUserTitle(userId);
+        });
+    }
+    
+    /**
+     * Takes the likes of a deleted share off its owner's total, inside the deleting transaction.
+     */
+    @Transactional
+    public void subtractTotalLikes(Long userId, long likes) {
+        userRepository.addToTotalLikes(userId, -likes);
+        updateUserTitle(userId);
+    }
+    
     @Transactional
     public void updateUserTitle(String username) {
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            
-            // Calculate total likes from user's shares
-            long totalLikes = shareRepository.findByOwnerUsername(username)
-                .stream()
-                .mapToLong(Share::getLikeCount)
-                .sum();
-            
-            // Determine title based on total likes
-            String title = determineTitle(totalLikes);
-            user.setTitle(title);
-            userRepository.save(user);
-        }
+        userRepository.findIdByUsername(username).ifPresent(this::updateUserTitle);
     }
     
     @Transactional
     public void updateUserTitle(Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            
-            // Calculate total likes from user's shares
-            long totalLikes = shareRepository.findByOwnerUsername(user.getUsername())
-                .stream()
-                .mapToLong(Share::getLikeCount)
-                .sum();
-            
-            // Determine title based on total likes
-            String title = determineTitle(totalLikes);
-            user.setTitle(title);
-            userRepository.save(user);
+        userRepository.refreshTitle(userId,
+                CODE_MASTER_LIKES, CODE_MASTER,
+                CODE_ENTHUSIAST_LIKES, CODE_ENTHUSIAST,
+                NEWBIE_CODER);
+    }
+    
+    // Off the startup path; the walk over all users can take a while on a large table
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        scheduler.schedule(this::reconcileTotalLikes, Instant.now());
+    }
+    
+    /**
+     * Corrects total_likes (and the title) of users where it differs from share_likes. Fixes drift
+     * from missed events and backfills the column the first time it is added. A like whose delta is
+     * still pending in the like counter flush shows up as a difference too, so, as in
+     * {@link LikeCounterService#reconcile()}, a user is only corrected when the same difference is
+     * still there after the settle delay, and the correction is added as a delta so flushes landing
+     * in between are kept. Users are walked in chunks, each corrected in its own transaction. One
+     * node reconciles at a time, and the startup run is skipped while the lock from another node's
+     * run is still held.
+     */
+    @Scheduled(cron = "${app.users.reconcile-cron:0 45 3 * * *}")
+    public void reconcileTotalLikes() {
+        if (!Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(RECONCILE_LOCK, "1", RECONCILE_LOCK_TTL))) {
+            return;
+        }
+        try {
+            Map<Long, Long> observed = new HashMap<>();
+            long after = 0;
+            List<UserRepository.UserLikesDrift> chunk;
+            do {
+                chunk = userRepository.findTotalLikesDriftAfter(after, RECONCILE_CHUNK_SIZE);
+                for (UserRepository.UserLikesDrift row : chunk) {
+                    if (row.getDrift() != 0) {
+                        observed.put(row.getId(), row.getDrift());
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    after = chunk.get(chunk.size() - 1).getId();
+                }
+            } while (chunk.size() == RECONCILE_CHUNK_SIZE);
+            if (!observed.isEmpty()) {
+                scheduler.schedule(() -> correctTotalLikes(observed), Instant.now().plus(settleDelay));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Total likes reconciliation failed: {}", e.getMessage());
         }
     }
     
-    private String determineTitle(long totalLikes) {
-        if (totalLikes >= 50) {
-            return "Code Master";
-        } else if (totalLikes >= 5) {
-            return "Code Enthusiast";
-        } else {
-            return "Newbie Coder";
+    private void correctTotalLikes(Map<Long, Long> observed) {
+        List<Long> ids = List.copyOf(observed.keySet());
+        int corrected = 0;
+        try {
+            for (int i = 0; i < ids.size(); i += RECONCILE_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(i, Math.min(i + RECONCILE_CHUNK_SIZE, ids.size()));
+                Integer applied = tx.execute(status -> {
+                    int count = 0;
+                    for (UserRepository.UserLikesDrift row : userRepository.findTotalLikesDrift(chunk)) {
+                        if (row.getDrift() != 0 && row.getDrift().equals(observed.get(row.getId()))) {
+                            userRepository.addToTotalLikes(row.getId(), row.getDrift());
+                            updateUserTitle(row.getId());
+                            count++;
+                        }
+                    }
+                    return count;
+                });
+                corrected += applied != null ? applied : 0;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Total likes reconciliation failed: {}", e.getMessage());
+        }
+        if (corrected > 0) {
+            log.info("Reconciled total likes of {} users", corrected);
         }
     }
     
     public long getTotalLikesForUser(String username) {
-        return shareRepository.findByOwnerUsername(username)
-            .stream()
-            .mapToLong(Share::getLikeCount)
-            .sum();
+        return userRepository.findTotalLikesByUsername(username).orElse(0L);
     }
 }
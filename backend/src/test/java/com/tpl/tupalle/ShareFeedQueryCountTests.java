@@ -0,0 +1,120 @@
+package com.tpl.tupalle;
+
+import com.tpl.tupalle.entity.CodeSnippet;
+import com.tpl.tupalle.entity.Share;
+import com.tpl.tupalle.entity.User;
+import com.tpl.tupalle.repositories.ShareRepository;
+import com.tpl.tupalle.repositories.UserRepository;
+import com.tpl.tupalle.services.ShareSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the feed read path against N+1 regressions: the number of SQL statements for a
+ * listing must not depend on the page size.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"app.search.index-dir=target/test-search-index"
+})
+@AutoConfigureMockMvc
+@Transactional
+@WithMockUser(username = "testuser")
+class ShareFeedQueryCountTests {
+
+	private static final int SHARE_COUNT = 25;
+	private static final long MAX_STATEMENTS = 10;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ShareRepository shareRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ShareSearchIndex searchIndex;
+
+	@BeforeEach
+	void seedShares() {
+		User owner = userRepository.findByUsername("testuser").orElseThrow();
+		for (int i = 0; i < SHARE_COUNT; i++) {
+			CodeSnippet first = new CodeSnippet();
+			first.setLanguage("java");
+			first.setContent("class Probe" + i + " {}");
+			CodeSnippet second = new CodeSnippet();
+			second.setLanguage("sql");
+			second.setContent("SELECT " + i + ";");
+
+			Share share = new Share();
+			share.setOwner(owner);
+			share.setTitle("feed-probe " + i);
+			share.setImageUrls(List.of("images/probe-" + i + "-a.png", "images/probe-" + i + "-b.png"));
+			share.setCodeSnippets(List.of(first, second));
+			shareRepository.save(share);
+		}
+		entityManager.flush();
+	}
+
+	@Test
+	void recentFeedUsesFixedNumberOfStatements() throws Exception {
+		assertConstantStatements("/shares?sort=recent&size=");
+	}
+
+	@Test
+	void searchUsesFixedNumberOfStatements() throws Exception {
+		// Seeded rows are uncommitted, so index them explicitly within the test transaction
+		searchIndex.rebuild();
+		assertConstantStatements("/shares/search?q=feed-probe&size=");
+	}
+
+	@Test
+	void userSharesUseFixedNumberOfStatements() throws Exception {
+		assertConstantStatements("/users/testuser/shares?size=");
+		assertConstantStatements("/api/users/testuser/shares?size=");
+	}
+
+	private void assertConstantStatements(String urlWithoutSize) throws Exception {
+		long small = statementsFor(urlWithoutSize + 5);
+		long large = statementsFor(urlWithoutSize + 20);
+
+		assertEquals(small, large, "statement count must not grow with page size");
+		assertTrue(large <= MAX_STATEMENTS, "expected at most " + MAX_STATEMENTS + " statements but got " + large);
+	}
+
+	private long statementsFor(String url) throws Exception {
+		// Start from an empty persistence context so nothing is served from the first-level cache
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		mockMvc.perform(get(url)).andExpect(status().isOk());
+
+		return statistics.getPrepareStatementCount();
+	}
+}
@@ -0,0 +1,142 @@
+package com.tpl.tupalle;
+
+import com.tpl.tupalle.entity.DTO.BatchLikeRequest;
+import com.tpl.tupalle.entity.DTO.BatchLikeResponse;
+import com.tpl.tupalle.entity.Share;
+import com.tpl.tupalle.entity.User;
+import com.tpl.tupalle.repositories.ShareLikeBatchRepository;
+import com.tpl.tupalle.repositories.ShareLikeRepository;
+import com.tpl.tupalle.repositories.ShareRepository;
+import com.tpl.tupalle.repositories.UserRepository;
+import com.tpl.tupalle.services.LikeCounterService;
+import com.tpl.tupalle.services.ShareService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Covers the batched like path: per-operation statuses, last-op-wins for repeated shares and
+ * counts that include deltas not yet flushed. APPLIED vs UNCHANGED comes from the per-statement
+ * update counts of the JDBC batch, which Connector/J only reports with
+ * rewriteBatchedStatements=false (its default).
+ */
+@SpringBootTest(properties = {
+		"app.search.index-dir=target/test-search-index",
+		// Keep the background flush from writing the pending delta while the test runs
+		"app.likes.flush-interval-ms=3600000"
+})
+@Transactional
+class ShareLikeBatchTests {
+
+	private static final long UNFLUSHED_LIKES = 2;
+
+	@Autowired
+	private ShareService shareService;
+
+	@Autowired
+	private LikeCounterService likeCounters;
+
+	@Autowired
+	private ShareLikeBatchRepository likeBatchRepository;
+
+	@Autowired
+	private ShareLikeRepository likeRepository;
+
+	@Autowired
+	private ShareRepository shareRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Long userId;
+	private UUID fresh;
+	private UUID alreadyLiked;
+	private UUID neverLiked;
+
+	@BeforeEach
+	void seedShares() {
+		User user = userRepository.findByUsername("testuser").orElseThrow();
+		userId = user.getId();
+		fresh = saveShare(user, "batch-probe fresh", 0);
+		alreadyLiked = saveShare(user, "batch-probe liked", 1);
+		neverLiked = saveShare(user, "batch-probe never", 0);
+		entityManager.flush();
+		likeBatchRepository.insertLikesIgnoringDuplicates(userId, List.of(alreadyLiked), Instant.now().getEpochSecond());
+		// Likes of other users accepted on this node but not yet written to like_count
+		likeCounters.add(fresh, UNFLUSHED_LIKES);
+	}
+
+	@AfterEach
+	void dropPendingDelta() {
+		likeCounters.add(fresh, -UNFLUSHED_LIKES);
+	}
+
+	@Test
+	void mixedBatchReportsEachShareOnce() {
+		UUID missing = UUID.randomUUID();
+		BatchLikeResponse response = shareService.applyLikeBatch(userId, List.of(
+				new BatchLikeRequest.Operation(fresh, false),
+				new BatchLikeRequest.Operation(alreadyLiked, true),
+				new BatchLikeRequest.Operation(neverLiked, true),
+				new BatchLikeRequest.Operation(missing, true),
+				new BatchLikeRequest.Operation(fresh, true),
+				new BatchLikeRequest.Operation(neverLiked, false)));
+
+		List<BatchLikeResponse.Result> results = response.results();
+		assertEquals(4, results.size(), "one result per distinct share");
+		assertResult(results.get(0), alreadyLiked, true, BatchLikeResponse.Status.UNCHANGED, 1);
+		assertResult(results.get(1), missing, true, BatchLikeResponse.Status.NOT_FOUND, 0);
+		// Last operation wins and moves the share to the end, like a re-insert
+		assertResult(results.get(2), fresh, true, BatchLikeResponse.Status.APPLIED, UNFLUSHED_LIKES + 1);
+		assertResult(results.get(3), neverLiked, false, BatchLikeResponse.Status.UNCHANGED, 0);
+
+		assertTrue(likeRepository.existsByShareIdAndUserId(fresh, userId));
+		assertTrue(likeRepository.existsByShareIdAndUserId(alreadyLiked, userId));
+		assertFalse(likeRepository.existsByShareIdAndUserId(neverLiked, userId));
+		assertEquals(1, likeRepository.countByShareId(alreadyLiked), "duplicate like must not add a row");
+	}
+
+	@Test
+	void unlikeIsAppliedOnce() {
+		BatchLikeResponse response = shareService.applyLikeBatch(userId, List.of(
+				new BatchLikeRequest.Operation(alreadyLiked, false),
+				new BatchLikeRequest.Operation(alreadyLiked, false)));
+
+		assertEquals(1, response.results().size());
+		assertResult(response.results().get(0), alreadyLiked, false, BatchLikeResponse.Status.APPLIED, 0);
+		assertFalse(likeRepository.existsByShareIdAndUserId(alreadyLiked, userId));
+	}
+
+	private UUID saveShare(User owner, String title, long likeCount) {
+		Share share = new Share();
+		share.setOwner(owner);
+		share.setTitle(title);
+		share.setImageUrls(List.of());
+		share.setCodeSnippets(List.of());
+		share.setLikeCount(likeCount);
+		return shareRepository.save(share).getId();
+	}
+
+	private static void assertResult(BatchLikeResponse.Result result, UUID shareId, boolean liked,
+			BatchLikeResponse.Status status, long likeCount) {
+		assertEquals(shareId.toString(), result.shareId());
+		assertEquals(liked, result.liked());
+		assertEquals(status, result.status(), "status of " + shareId);
+		assertEquals(likeCount, result.likeCount(), "like count of " + shareId);
+	}
+}
@@ -0,0 +1,60 @@
+package com.tpl.tupalle.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageVariantsTests {
+
+	@Test
+	void largeImageIsScaledToEveryVariantAsJpeg() throws IOException {
+		ImageVariants.Rendered rendered = ImageVariants.render(new ByteArrayInputStream(png(4000, 3000)));
+
+		assertEquals(4000, rendered.width());
+		assertEquals(3000, rendered.height());
+		assertDimensions(rendered, ImageVariants.Variant.THUMBNAIL, 320, 240);
+		assertDimensions(rendered, ImageVariants.Variant.CARD, 800, 600);
+		assertDimensions(rendered, ImageVariants.Variant.FULL, 1920, 1440);
+	}
+
+	@Test
+	void smallImageIsNeverUpscaled() throws IOException {
+		ImageVariants.Rendered rendered = ImageVariants.render(new ByteArrayInputStream(png(200, 100)));
+
+		assertDimensions(rendered, ImageVariants.Variant.FULL, 200, 100);
+	}
+
+	@Test
+	void exifOrientationIsReadFromBigEndianApp1() {
+		byte[] app1 = {'E', 'x', 'i', 'f', 0, 0, 'M', 'M', 0, 42, 0, 0, 0, 8,
+				0, 1, 0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, 6, 0, 0};
+		assertEquals(6, ImageVariants.exifOrientation(app1));
+		assertEquals(30, ImageVariants.orient(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), 6).getWidth());
+	}
+
+	@Test
+	void undecodableDataIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> ImageVariants.render(new ByteArrayInputStream(new byte[] {1, 2, 3})));
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+		return out.toByteArray();
+	}
+
+	private static void assertDimensions(ImageVariants.Rendered rendered, ImageVariants.Variant variant,
+										 int width, int height) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(rendered.variants().get(variant)));
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+	}
+}
@@ -0,0 +1,70 @@
+package com.tpl.tupalle.services;
+
+import com.tpl.tupalle.repositories.ShareLikeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikedSetCacheTests {
+
+	private static final Long USER_ID = 1L;
+
+	private ShareLikeRepository likeRepo;
+	private LikedSetCache cache;
+
+	@BeforeEach
+	void setUp() {
+		likeRepo = mock(ShareLikeRepository.class);
+		cache = new LikedSetCache(likeRepo, mock(StringRedisTemplate.class), new SimpleMeterRegistry(),
+				1 << 20, Duration.ofMinutes(30), 1000, 0.01);
+	}
+
+	@Test
+	void likeCommittedWhileFilterLoadsIsNotAnsweredNegatively() {
+		UUID liked = UUID.randomUUID();
+		// The like commits and is broadcast after the load has read share_likes, before the entry is installed
+		when(likeRepo.findShareIdsByUserId(eq(USER_ID), any())).thenAnswer(invocation -> {
+			cache.onMessage(likeMessage(liked), null);
+			return List.of();
+		});
+		when(likeRepo.findLikedShareIds(eq(USER_ID), anyCollection())).thenReturn(Set.of(liked));
+
+		assertEquals(Set.of(liked), cache.likedAmong(USER_ID, List.of(liked)));
+		assertEquals(Set.of(liked), cache.likedAmong(USER_ID, List.of(liked)));
+	}
+
+	@Test
+	void likeAfterLoadIsAddedToTheFilter() {
+		UUID liked = UUID.randomUUID();
+		when(likeRepo.findShareIdsByUserId(eq(USER_ID), any())).thenReturn(List.of());
+		assertEquals(Set.of(), cache.likedAmong(USER_ID, List.of(liked)));
+		verify(likeRepo, never()).findLikedShareIds(eq(USER_ID), anyCollection());
+
+		cache.onMessage(likeMessage(liked), null);
+		when(likeRepo.findLikedShareIds(eq(USER_ID), anyCollection())).thenReturn(Set.of(liked));
+
+		assertEquals(Set.of(liked), cache.likedAmong(USER_ID, List.of(liked)));
+	}
+
+	private static DefaultMessage likeMessage(UUID shareId) {
+		return new DefaultMessage(LikedSetCache.CHANGES_CHANNEL.getBytes(StandardCharsets.UTF_8),
+				(USER_ID + ":" + shareId + ":1").getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,56 @@
+package com.tpl.tupalle.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShareCursorTests {
+
+	private static final UUID ID = UUID.fromString("0f8e3c1a-5b2d-4c7e-9a10-3d4e5f6a7b8c");
+
+	@Test
+	void createdAtCursorRoundTrips() {
+		Instant createdAt = Instant.parse("2025-03-14T15:09:26.535897Z");
+		ShareCursor decoded = ShareCursor.decode(ShareCursor.ofCreatedAt(createdAt, ID).encode());
+
+		assertEquals(createdAt, decoded.createdAt());
+		assertEquals(ID, decoded.id());
+	}
+
+	@Test
+	void likeCountCursorRoundTrips() {
+		ShareCursor decoded = ShareCursor.decode(ShareCursor.ofLikeCount(1234, ID).encode());
+
+		assertEquals(1234, decoded.key());
+		assertEquals(ID, decoded.id());
+	}
+
+	@Test
+	void createdAtBeforeEpochRoundTrips() {
+		// Negative micros must floor, not truncate towards zero
+		Instant createdAt = Instant.parse("1969-12-31T23:59:59.999999Z");
+		ShareCursor cursor = ShareCursor.ofCreatedAt(createdAt, ID);
+
+		assertEquals(-1, cursor.key());
+		assertEquals(createdAt, ShareCursor.decode(cursor.encode()).createdAt());
+	}
+
+	@Test
+	void malformedTokensAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> ShareCursor.decode("not base64!"));
+		assertThrows(IllegalArgumentException.class, () -> ShareCursor.decode(encode("12345")));
+		assertThrows(IllegalArgumentException.class, () -> ShareCursor.decode(encode("abc:" + ID)));
+		assertThrows(IllegalArgumentException.class, () -> ShareCursor.decode(encode("12345:not-a-uuid")));
+		assertThrows(IllegalArgumentException.class, () -> ShareCursor.decode(""));
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,90 @@
+package com.tpl.tupalle.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the migration against a copy of share_codes in its pre-order-column shape, with the
+ * snippet_index column then added the way Hibernate's schema update adds it.
+ */
+@SpringBootTest(properties = "app.search.index-dir=target/test-search-index")
+class SnippetOrderMigrationTests {
+
+	private static final String LEGACY_TABLE = "share_codes_legacy_test";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private SnippetOrderMigration migration;
+
+	private final byte[] shareId = toBytes(UUID.randomUUID());
+
+	@BeforeEach
+	void createLegacyTable() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+		jdbcTemplate.execute("CREATE TABLE " + LEGACY_TABLE + " (share_id BINARY(16) NOT NULL, " +
+				"language VARCHAR(255), filename VARCHAR(255), content VARCHAR(255))");
+		for (String language : List.of("java", "sql", "python")) {
+			jdbcTemplate.update("INSERT INTO " + LEGACY_TABLE + " (share_id, language, content) VALUES (?, ?, ?)",
+					shareId, language, language + " snippet");
+		}
+	}
+
+	@AfterEach
+	void dropLegacyTable() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+	}
+
+	@Test
+	void renumbersSnippetsFilledWithZeroByNotNullColumn() {
+		jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ADD COLUMN snippet_index INTEGER NOT NULL");
+
+		assertEquals(1, migration.migrate(LEGACY_TABLE));
+		assertEquals(List.of("java", "sql", "python"), languagesInIndexOrder());
+		assertEquals(List.of(0, 1, 2), indexes());
+	}
+
+	@Test
+	void renumbersSnippetsWithNullIndex() {
+		jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ADD COLUMN snippet_index INTEGER");
+
+		assertEquals(1, migration.migrate(LEGACY_TABLE));
+		assertEquals(List.of("java", "sql", "python"), languagesInIndexOrder());
+	}
+
+	@Test
+	void leavesNumberedSharesAlone() {
+		jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ADD COLUMN snippet_index INTEGER");
+		migration.migrate(LEGACY_TABLE);
+
+		assertEquals(0, migration.migrate(LEGACY_TABLE));
+	}
+
+	private List<String> languagesInIndexOrder() {
+		return jdbcTemplate.queryForList("SELECT language FROM " + LEGACY_TABLE +
+				" WHERE share_id = ? ORDER BY snippet_index", String.class, shareId);
+	}
+
+	private List<Integer> indexes() {
+		return jdbcTemplate.queryForList("SELECT snippet_index FROM " + LEGACY_TABLE +
+				" WHERE share_id = ? ORDER BY snippet_index", Integer.class, shareId);
+	}
+
+	private static byte[] toBytes(UUID id) {
+		return ByteBuffer.allocate(16)
+				.putLong(id.getMostSignificantBits())
+				.putLong(id.getLeastSignificantBits())
+				.array();
+	}
+}
@@ -0,0 +1,104 @@
+package com.tpl.tupalle.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionTrieTests {
+
+	private final SuggestionTrie trie = new SuggestionTrie(10, 100);
+
+	@Test
+	void prefixEndingMidEdgeFindsTheTerm() {
+		trie.put(share("a", "Spring Boot", 1));
+
+		assertEquals(List.of("a"), keys("spr"));
+		assertEquals(List.of("a"), keys("Spring B"));
+		assertEquals(List.of(), keys("sprint"));
+	}
+
+	@Test
+	void splitAfterInsertKeepsBothBranches() {
+		trie.put(share("a", "spring", 1));
+		trie.put(share("b", "sprout", 5));
+
+		assertEquals(List.of("b", "a"), keys("spr"));
+		assertEquals(List.of("a"), keys("spri"));
+		assertEquals(List.of("b"), keys("spro"));
+		assertEquals(List.of("a"), keys("spring"));
+	}
+
+	@Test
+	void renameRemovesTheOldTerms() {
+		trie.put(share("a", "Intro to Spring", 1));
+		trie.put(share("a", "Kotlin basics", 1));
+
+		assertEquals(List.of(), keys("intro"));
+		assertEquals(List.of(), keys("spring"));
+		assertEquals(List.of("a"), keys("kot"));
+		assertEquals(List.of("a"), keys("basics"));
+	}
+
+	@Test
+	void reweighReordersTheTopList() {
+		trie.put(share("a", "java streams", 1));
+		trie.put(share("b", "java records", 2));
+		assertEquals(List.of("b", "a"), keys("java"));
+
+		trie.put(share("a", "java streams", 3));
+
+		assertEquals(List.of("a", "b"), keys("java"));
+		assertEquals(3, trie.get("a").weight());
+	}
+
+	@Test
+	void removeDropsEveryTerm() {
+		trie.put(share("a", "Intro to Spring", 1));
+		trie.remove("a");
+
+		assertEquals(List.of(), keys("intro"));
+		assertEquals(List.of(), keys("spring"));
+		assertEquals(0, trie.size());
+	}
+
+	@Test
+	void prefixLongerThanMaxKeyLengthMatchesTheFullText() {
+		String common = "x".repeat(SuggestionTrie.MAX_KEY_LENGTH);
+		trie.put(share("a", common + " alpha", 2));
+		trie.put(share("b", common + " beta", 1));
+
+		assertEquals(List.of("a", "b"), keys(common));
+		assertEquals(List.of("b"), keys(common + " be"));
+		assertEquals(List.of(), keys(common + " gamma"));
+	}
+
+	@Test
+	void usernamesOnlyMatchFromTheStart() {
+		trie.put(new SuggestionTrie.Entry("u", "user", "jane doe", "jane doe", 1));
+
+		assertEquals(List.of("u"), keys("jan"));
+		assertEquals(List.of(), keys("doe"));
+	}
+
+	@Test
+	void newKeysBeyondTheCapAreIgnored() {
+		SuggestionTrie small = new SuggestionTrie(10, 1);
+		small.put(share("a", "first", 1));
+		small.put(share("b", "second", 1));
+		small.put(share("a", "first renamed", 2));
+
+		assertEquals(1, small.size());
+		assertEquals(List.of(), small.lookup("second", 10));
+		assertEquals("first renamed", small.lookup("first", 10).get(0).text());
+	}
+
+	private List<String> keys(String prefix) {
+		return trie.lookup(prefix, 10).stream().map(SuggestionTrie.Entry::key).toList();
+	}
+
+	private static SuggestionTrie.Entry share(String key, String title, long weight) {
+		return new SuggestionTrie.Entry(key, "share", title, key, weight);
+	}
+}
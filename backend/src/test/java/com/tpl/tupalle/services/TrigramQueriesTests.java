@@ -0,0 +1,66 @@
+package com.tpl.tupalle.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrigramQueriesTests {
+
+	@Test
+	void literalYieldsOverlappingLowerCaseTrigrams() {
+		assertEquals(Set.of("npe", "pe("), TrigramQueries.trigrams("NPE("));
+	}
+
+	@Test
+	void trigramsMatchTheIndexAnalyzer() {
+		// LowerCaseFilter maps each code point on its own; String.toLowerCase turns İ into two
+		assertEquals(Set.of("iko", "kon"), TrigramQueries.trigrams("İKON"));
+		// NGramTokenizer counts code points, so a surrogate pair is one character of a gram
+		assertEquals(Set.of("a\uD83D\uDE00b"), TrigramQueries.trigrams("a\uD83D\uDE00b"));
+	}
+
+	@Test
+	void regexKeepsOnlyRequiredLiteralRuns() {
+		assertEquals(List.of("NullPointerException"), TrigramQueries.requiredLiterals("NullPointerException"));
+		assertEquals(List.of("get", "ById"), TrigramQueries.requiredLiterals("get(User|Share)ById"));
+		assertEquals(List.of("colo", "r_scheme"), TrigramQueries.requiredLiterals("colou?r_scheme"));
+		assertEquals(List.of("bcdef"), TrigramQueries.requiredLiterals("ab+cdef"));
+		assertEquals(List.of("Service.java"), TrigramQueries.requiredLiterals("[a-z]+Service\\.java"));
+		assertEquals(List.of("abcd", "hij"), TrigramQueries.requiredLiterals("x{0,2}abcd(efg)?hij"));
+	}
+
+	@Test
+	void topLevelAlternationRequiresNothing() {
+		assertEquals(List.of(), TrigramQueries.requiredLiterals("foo|barbaz"));
+	}
+
+	@Test
+	void escapeOperandsAreNotReadAsLiterals() {
+		assertEquals(List.of("bcdef"), TrigramQueries.requiredLiterals("\\x41bcdef"));
+		assertEquals(List.of("abc"), TrigramQueries.requiredLiterals("\\x{41}abc"));
+		assertEquals(List.of("abc", "def"), TrigramQueries.requiredLiterals("abc\\u0041def"));
+		assertEquals(List.of("abc", "def"), TrigramQueries.requiredLiterals("abc\\0101def"));
+		assertEquals(List.of("abc", "def"), TrigramQueries.requiredLiterals("abc\\cAdef"));
+		assertEquals(List.of("bcd"), TrigramQueries.requiredLiterals("\\p{Lu}bcd"));
+		assertEquals(List.of("def"), TrigramQueries.requiredLiterals("(?<word>abc)\\k<word>def"));
+		assertEquals(List.of("abc", "def"), TrigramQueries.requiredLiterals("(abc)\\12def"));
+	}
+
+	@Test
+	void quotedRunIsLiteral() {
+		assertEquals(List.of("a.b(c)def"), TrigramQueries.requiredLiterals("\\Qa.b(c)\\Edef"));
+		assertEquals(List.of("foo", "bar"), TrigramQueries.requiredLiterals("\\Qfoo.\\E?bar"));
+		assertEquals(List.of("x|y)z"), TrigramQueries.requiredLiterals("(\\Qx|y)z\\E)"));
+	}
+
+	@Test
+	void inlineFlagsRequireNothing() {
+		assertEquals(List.of(), TrigramQueries.requiredLiterals("(?x)foo bar"));
+		assertEquals(List.of(), TrigramQueries.requiredLiterals("abc(?x: d e f)"));
+		assertEquals(List.of(), TrigramQueries.requiredLiterals("(?-i)Service"));
+		assertEquals(List.of("(?x)abc"), TrigramQueries.requiredLiterals("\\Q(?x)abc\\E"));
+	}
+}